@@ -0,0 +1,52 @@
+package org.github.mitallast.taskflow.common.json;
+
+import com.typesafe.config.ConfigFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.DagGenerator;
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonServiceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private JsonService jsonService;
+    private DagRun dagRun;
+    private ByteBuf buf;
+
+    @Setup
+    public void setUp() throws Exception {
+        jsonService = new JsonService(ConfigFactory.defaultReference());
+        Dag dag = DagGenerator.dag("benchmark", size);
+        dagRun = DagGenerator.dagRun(dag, size / 2);
+        buf = Unpooled.buffer();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        buf.release();
+    }
+
+    @Benchmark
+    public String serializeString() {
+        return jsonService.serialize(dagRun);
+    }
+
+    @Benchmark
+    public ByteBuf serializeByteBuf() {
+        buf.clear();
+        jsonService.serialize(buf, dagRun);
+        return buf;
+    }
+}
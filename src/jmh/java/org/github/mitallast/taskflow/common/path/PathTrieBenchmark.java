@@ -0,0 +1,40 @@
+package org.github.mitallast.taskflow.common.path;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathTrieBenchmark {
+
+    @Param({"/", "/_stats", "/queue", "/queue/_stats", "/queue/message", "/queue/message/uuid"})
+    private String path;
+
+    private PathTrie<String> pathTrie;
+    private Map<String, String> params;
+
+    @Setup
+    public void setUp() throws Exception {
+        pathTrie = new PathTrie<>();
+        pathTrie.insert("/", "1");
+        pathTrie.insert("/_stats", "2");
+        pathTrie.insert("/{queue}", "3");
+        pathTrie.insert("/{queue}/_stats", "4");
+        pathTrie.insert("/{queue}/message", "5");
+        pathTrie.insert("/{queue}/message/{uuid}", "6");
+        params = new HashMap<>();
+    }
+
+    @Benchmark
+    public String retrieve() {
+        params.clear();
+        return pathTrie.retrieve(path, params);
+    }
+}
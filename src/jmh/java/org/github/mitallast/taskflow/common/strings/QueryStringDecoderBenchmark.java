@@ -0,0 +1,22 @@
+package org.github.mitallast.taskflow.common.strings;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryStringDecoderBenchmark {
+
+    @Param({"plain", "dag-run-12345", "hello+world", "%D0%BF%D1%80%D0%B8%D0%B2%D0%B5%D1%82%20%D0%BC%D0%B8%D1%80"})
+    private String component;
+
+    @Benchmark
+    public String decodeComponent() {
+        return QueryStringDecoder.decodeComponent(component);
+    }
+}
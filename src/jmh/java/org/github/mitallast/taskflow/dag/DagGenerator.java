@@ -0,0 +1,74 @@
+package org.github.mitallast.taskflow.dag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.github.mitallast.taskflow.operation.OperationResult;
+import org.github.mitallast.taskflow.operation.OperationStatus;
+import org.joda.time.DateTime;
+
+import java.util.Random;
+
+/**
+ * Generates dags for benchmarks.
+ */
+public final class DagGenerator {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    private DagGenerator() {
+    }
+
+    /**
+     * Chain dag, each task depends on two previous tasks
+     */
+    public static Dag dag(String token, int size) {
+        ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            ImmutableSet<String> depends = i == 0 ? ImmutableSet.of()
+                : i == 1 ? ImmutableSet.of("task0")
+                : ImmutableSet.of("task" + (i - 1), "task" + (i - 2));
+            tasks.add(new Task(i + 1, 0, "task" + i, depends, 1, "dummy", command));
+        }
+        return new Dag(1, 0, token, tasks.build());
+    }
+
+    /**
+     * Wide dag, each task depends on up to {@code maxDepends} random previous tasks,
+     * so independent tasks are mixed with long chains.
+     */
+    public static Dag random(String token, int size, int maxDepends, Random random) {
+        ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            ImmutableSet.Builder<String> depends = ImmutableSet.builder();
+            int count = i == 0 ? 0 : random.nextInt(maxDepends + 1);
+            for (int j = 0; j < count; j++) {
+                depends.add("task" + random.nextInt(i));
+            }
+            tasks.add(new Task(i + 1, 0, "task" + i, depends.build(), 1, "dummy", command));
+        }
+        return new Dag(1, 0, token, tasks.build());
+    }
+
+    /**
+     * Running dag run with first {@code finished} tasks succeeded
+     */
+    public static DagRun dagRun(Dag dag, int finished) {
+        DateTime now = new DateTime();
+        ImmutableList.Builder<TaskRun> taskRuns = ImmutableList.builder();
+        for (int i = 0; i < dag.tasks().size(); i++) {
+            Task task = dag.tasks().get(i);
+            if (i < finished) {
+                taskRuns.add(new TaskRun(i + 1, task, now, now, now, TaskRunStatus.SUCCESS, new OperationResult(OperationStatus.SUCCESS, "")));
+            } else {
+                taskRuns.add(new TaskRun(i + 1, task, now, null, null, TaskRunStatus.PENDING, null));
+            }
+        }
+        return new DagRun(1, dag, now, now, null, DagRunStatus.RUNNING, taskRuns.build());
+    }
+}
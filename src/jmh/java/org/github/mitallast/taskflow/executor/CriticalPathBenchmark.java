@@ -0,0 +1,117 @@
+package org.github.mitallast.taskflow.executor;
+
+import org.github.mitallast.taskflow.dag.DagGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated makespan of wide dag runs executed with limited slots: ready tasks are started in task run
+ * id order, as before, or by the longest remaining path first. Most tasks are short and some are long,
+ * estimated durations deviate from actual ones by up to {@code error}, like averages of history.
+ * <p>
+ * Average makespan of both orders is printed once per trial, benchmark measures cost of simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriticalPathBenchmark {
+
+    private static final int DAGS = 32;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    @Param({"8", "32"})
+    private int slots;
+
+    @Param({"0", "0.5"})
+    private double error;
+
+    private CompiledDag[] dags;
+    private long[][] durations;
+    private long[][] estimated;
+    private long[] idOrder;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        dags = new CompiledDag[DAGS];
+        durations = new long[DAGS][size];
+        estimated = new long[DAGS][size];
+        idOrder = new long[size];
+        for (int i = 0; i < DAGS; i++) {
+            dags[i] = new CompiledDag(DagGenerator.random("benchmark", size, 2, random));
+            for (int j = 0; j < size; j++) {
+                durations[i][j] = random.nextDouble() < 0.2
+                    ? 60000 + random.nextInt(540000)
+                    : 1000 + random.nextInt(29000);
+                estimated[i][j] = (long) (durations[i][j] * (1 + error * (2 * random.nextDouble() - 1)));
+            }
+        }
+
+        long fifo = 0;
+        long criticalPath = 0;
+        for (int i = 0; i < DAGS; i++) {
+            fifo += makespan(dags[i], durations[i], idOrder, slots);
+            criticalPath += makespan(dags[i], durations[i], dags[i].criticalPath(estimated[i]), slots);
+        }
+        System.out.printf("makespan: task run id order %ds, critical path first %ds, improvement %.1f%%%n",
+            fifo / DAGS / 1000, criticalPath / DAGS / 1000, 100.0 * (fifo - criticalPath) / fifo);
+    }
+
+    @Benchmark
+    public long fifo() {
+        int i = next++ % DAGS;
+        return makespan(dags[i], durations[i], idOrder, slots);
+    }
+
+    @Benchmark
+    public long criticalPath() {
+        int i = next++ % DAGS;
+        return makespan(dags[i], durations[i], dags[i].criticalPath(estimated[i]), slots);
+    }
+
+    /**
+     * Event driven simulation of dag run: ready task with higher priority is started first once a slot is free,
+     * ties are broken by ordinal, like task run id order of {@link TaskRunQueue}.
+     *
+     * @return time of the last task finish
+     */
+    private static long makespan(CompiledDag dag, long[] durations, long[] priority, int slots) {
+        PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) -> priority[a] != priority[b]
+            ? Long.compare(priority[b], priority[a])
+            : Integer.compare(a, b));
+        int[] pending = new int[dag.size()];
+        for (int ordinal = 0; ordinal < dag.size(); ordinal++) {
+            pending[ordinal] = dag.depends(ordinal).length;
+            if (pending[ordinal] == 0) {
+                ready.add(ordinal);
+            }
+        }
+        // finish time and ordinal of running task
+        PriorityQueue<long[]> running = new PriorityQueue<>(Comparator.comparingLong(task -> task[0]));
+        long time = 0;
+        while (!ready.isEmpty() || !running.isEmpty()) {
+            while (running.size() < slots && !ready.isEmpty()) {
+                int ordinal = ready.poll();
+                running.add(new long[]{time + durations[ordinal], ordinal});
+            }
+            long[] finished = running.poll();
+            time = finished[0];
+            for (int dependent : dag.dependents((int) finished[1])) {
+                if (--pending[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return time;
+    }
+}
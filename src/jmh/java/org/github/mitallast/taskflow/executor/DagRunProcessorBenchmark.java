@@ -0,0 +1,54 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.DagGenerator;
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.github.mitallast.taskflow.executor.command.Command;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DagRunProcessorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private DagRunProcessor processor;
+    private DagRun dagRun;
+    private CompiledDag compiledDag;
+
+    @Setup
+    public void setUp() throws Exception {
+        processor = new DagRunProcessor();
+        Dag dag = DagGenerator.dag("benchmark", size);
+        dagRun = DagGenerator.dagRun(dag, size / 2);
+        compiledDag = new CompiledDag(dag);
+    }
+
+    @Benchmark
+    public CompiledDag compile() {
+        return new CompiledDag(dagRun.dag());
+    }
+
+    @Benchmark
+    public DagRunState state() {
+        return new DagRunState(compiledDag, dagRun);
+    }
+
+    @Benchmark
+    public Command process() {
+        return processor.process(dagRun);
+    }
+
+    @Benchmark
+    public ImmutableList<Command> processAll() {
+        return processor.processAll(dagRun);
+    }
+}
@@ -0,0 +1,110 @@
+package org.github.mitallast.taskflow.operation;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of process output handling: 1 GB of output lines is piped through to tail collector.
+ * <p>
+ * Baseline is previous line reader, which allocates string per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputPipeBenchmark {
+
+    private static final long SIZE = 1L << 30;
+
+    @Param({"UTF-8", "windows-1251"})
+    private String charset;
+
+    @Param({"80"})
+    private int lineLength;
+
+    private byte[] block;
+    private OutputPipe pipe;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 65536) {
+            String line = "[" + builder.length() + "] строка output line";
+            while (line.length() < lineLength - 1) {
+                line += ".";
+            }
+            builder.append(line).append('\n');
+        }
+        block = builder.toString().getBytes(Charset.forName(charset));
+        pipe = new OutputPipe(65536, Charset.forName(charset));
+    }
+
+    @Benchmark
+    public long pipe(Blackhole blackhole) throws IOException {
+        OutputCollector collector = new OutputCollector(16384, 49152);
+        pipe.pipe(new RepeatInputStream(block, SIZE), output -> {
+            blackhole.consume(output.remaining());
+            collector.write(output);
+        });
+        return collector.size();
+    }
+
+    @Benchmark
+    public long readLines(Blackhole blackhole) throws IOException {
+        OutputCollector collector = new OutputCollector(16384, 49152);
+        new BufferedReader(new InputStreamReader(new RepeatInputStream(block, SIZE), charset))
+            .lines()
+            .forEach(line -> {
+                blackhole.consume(line);
+                collector.write(line + '\n');
+            });
+        return collector.size();
+    }
+
+    /**
+     * Stream of given size, which repeats block content.
+     */
+    private static class RepeatInputStream extends InputStream {
+        private final byte[] block;
+        private long remaining;
+        private int position;
+
+        private RepeatInputStream(byte[] block, long size) {
+            this.block = block;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(len, remaining), block.length - position);
+            System.arraycopy(block, position, b, off, count);
+            position = (position + count) % block.length;
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+}
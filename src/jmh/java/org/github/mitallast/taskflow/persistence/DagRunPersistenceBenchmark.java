@@ -0,0 +1,101 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.DagGenerator;
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.github.mitallast.taskflow.dag.TaskRun;
+import org.github.mitallast.taskflow.operation.OperationResult;
+import org.github.mitallast.taskflow.operation.OperationStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run creation hot path by dag size: create dag run, load it, and mark it through all transitions.
+ * <p>
+ * Runs against in-memory H2 in PostgreSQL mode by default,
+ * set DB_URL, DB_USER and DB_PASSWORD to run against PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DagRunPersistenceBenchmark {
+
+    private static final OperationResult success = new OperationResult(OperationStatus.SUCCESS, "");
+
+    @Param({"1", "10", "100", "500", "2000"})
+    private int size;
+
+    private PersistenceService persistence;
+    private DefaultDagRunPersistenceService dagRunPersistence;
+    private Dag dag;
+    private DagRun dagRun;
+
+    /**
+     * Fresh dag run per invocation, only transition benchmark pays for its creation
+     */
+    @State(Scope.Thread)
+    public static class Pending {
+        private DagRun dagRun;
+
+        @Setup(Level.Invocation)
+        public void setUp(DagRunPersistenceBenchmark benchmark) throws Exception {
+            dagRun = benchmark.dagRunPersistence.createDagRun(benchmark.dag);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Configurator.setRootLevel(org.apache.logging.log4j.Level.WARN);
+
+        Config config = ConfigFactory.parseString(
+            "persistence.url = \"jdbc:h2:mem:benchmark" + size + ";MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1\"\n" +
+                "persistence.url = ${?DB_URL}\n" +
+                "persistence.username = \"\"\n" +
+                "persistence.username = ${?DB_USER}\n" +
+                "persistence.cleanup = true"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+
+        persistence = new PersistenceService(config);
+        new SchemaService(config, persistence).processOnline();
+        DefaultDagPersistenceService dagPersistence = H2DagPersistenceService.create(config, persistence, new JsonService(config));
+        dagRunPersistence = new DefaultDagRunPersistenceService(config, persistence, dagPersistence);
+
+        dag = dagPersistence.createDag(DagGenerator.dag("benchmark", size));
+        dagRun = dagRunPersistence.createDagRun(dag);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        persistence.close();
+    }
+
+    @Benchmark
+    public DagRun createDagRun() {
+        return dagRunPersistence.createDagRun(dag);
+    }
+
+    @Benchmark
+    public Optional<DagRun> findDagRun() {
+        return dagRunPersistence.findDagRun(dagRun.id());
+    }
+
+    @Benchmark
+    public void markTransitions(Pending pending, Blackhole blackhole) {
+        blackhole.consume(dagRunPersistence.startDagRun(pending.dagRun.id()));
+        for (TaskRun taskRun : pending.dagRun.tasks()) {
+            blackhole.consume(dagRunPersistence.startTaskRun(taskRun.id()));
+            blackhole.consume(dagRunPersistence.markTaskRunSuccess(taskRun.id(), success));
+        }
+        blackhole.consume(dagRunPersistence.markDagRunSuccess(pending.dagRun.id()));
+    }
+}
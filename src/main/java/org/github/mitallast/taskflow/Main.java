@@ -10,12 +10,14 @@ import org.github.mitallast.taskflow.common.component.ModulesBuilder;
 import org.github.mitallast.taskflow.common.json.JsonModule;
 import org.github.mitallast.taskflow.dag.*;
 import org.github.mitallast.taskflow.docker.DockerModule;
+import org.github.mitallast.taskflow.log.TaskLogModule;
 import org.github.mitallast.taskflow.notification.NotificationModule;
 import org.github.mitallast.taskflow.operation.*;
 import org.github.mitallast.taskflow.persistence.PersistenceModule;
 import org.github.mitallast.taskflow.rest.RestModule;
 import org.github.mitallast.taskflow.executor.ExecutorModule;
 import org.github.mitallast.taskflow.scheduler.SchedulerModule;
+import org.github.mitallast.taskflow.timer.TimerModule;
 
 import java.io.IOException;
 
@@ -28,8 +30,10 @@ public class Main {
         ModulesBuilder modules = new ModulesBuilder();
         modules.add(new ComponentModule(config));
         modules.add(new JsonModule());
+        modules.add(new TimerModule());
         modules.add(new NotificationModule());
         modules.add(new PersistenceModule());
+        modules.add(new TaskLogModule());
         modules.add(new OperationModule());
         modules.add(new DagModule());
         modules.add(new ExecutorModule());
@@ -10,9 +10,10 @@ import org.github.mitallast.taskflow.aws.AwsService;
 import org.github.mitallast.taskflow.common.component.AbstractComponent;
 import org.github.mitallast.taskflow.operation.*;
 
-import java.io.IOException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
-public class AwsS3Monitor extends AbstractComponent implements Operation {
+public class AwsS3Monitor extends AbstractComponent implements AsyncOperation {
 
     private final AwsService awsService;
 
@@ -38,7 +39,7 @@ public class AwsS3Monitor extends AbstractComponent implements Operation {
     }
 
     @Override
-    public OperationResult run(OperationCommand command, OperationContext context) throws IOException, InterruptedException {
+    public CompletionStage<OperationResult> runAsync(OperationCommand command, OperationContext context) {
         Config config = command.config().withFallback(reference());
 
         AWSCredentialsProvider credentialsProvider = awsService.credentialsProvider(command.environment());
@@ -50,26 +51,14 @@ public class AwsS3Monitor extends AbstractComponent implements Operation {
         String bucket = config.getString("bucket");
         String prefix = config.getString("prefix");
         long duration = config.getDuration("await").toMillis();
-        long start = System.currentTimeMillis();
-        long timeout = start + duration;
+        long interval = config.getDuration("interval").toMillis();
 
-        while (!Thread.interrupted() && System.currentTimeMillis() < timeout) {
+        return OperationPoller.poll(context, interval, duration, TimeUnit.MILLISECONDS, () -> {
             logger.info("check exists s3://{}/{}", bucket, prefix);
-
-            if (client.doesBucketExist(bucket)) {
-                if (client.doesObjectExist(bucket, prefix)) {
-                    return new OperationResult(OperationStatus.SUCCESS, "");
-                }
+            if (client.doesBucketExist(bucket) && client.doesObjectExist(bucket, prefix)) {
+                return new OperationResult(OperationStatus.SUCCESS, "");
             }
-            logger.info("sleep 1s");
-            Thread.sleep(1000);
-        }
-
-        if (Thread.interrupted()) {
-            Thread.currentThread().interrupt();
-            return new OperationResult(OperationStatus.FAILED, "Operation canceled");
-        }
-
-        return new OperationResult(OperationStatus.FAILED, "Operation timed out");
+            return null;
+        });
     }
 }
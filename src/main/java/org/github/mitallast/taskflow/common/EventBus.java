@@ -6,15 +6,27 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class EventBus<T> {
     private final Logger logger = LogManager.getLogger();
     private final ConcurrentMap<String, CopyOnWriteArraySet<BiConsumer<String, T>>> subscribersMap;
+    private final CopyOnWriteArrayList<Consumer<String>> removeListeners;
 
     public EventBus() {
         this.subscribersMap = new ConcurrentHashMap<>();
+        this.removeListeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Listener is called with channel after its subscribers are removed by {@link #remove(String)}
+     */
+    public void addRemoveListener(Consumer<String> listener) {
+        Preconditions.checkNotNull(listener);
+        removeListeners.add(listener);
     }
 
     public void subscribe(String channel, BiConsumer<String, T> consumer) {
@@ -42,6 +54,13 @@ public class EventBus<T> {
     public void remove(String channel) {
         Preconditions.checkNotNull(channel);
         subscribersMap.remove(channel);
+        for (Consumer<String> listener : removeListeners) {
+            try {
+                listener.accept(channel);
+            } catch (Exception e) {
+                logger.warn("unexpected exception", e);
+            }
+        }
     }
 
     public void trigger(String channel, T event) {
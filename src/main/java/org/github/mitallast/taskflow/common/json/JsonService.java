@@ -75,7 +75,11 @@ public class JsonService extends AbstractComponent {
     }
 
     public <T> T deserialize(String data, Class<T> type) {
-        return deserialize(data, type);
+        try {
+            return mapper.readValue(data, type);
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
     }
 
     public <T> T deserialize(ByteBuf buf, Class<T> type) {
@@ -100,6 +100,19 @@ public class DagRun {
         return new DagRun(id, dag, createdDate, startDate, new DateTime(), DagRunStatus.SUCCESS, tasks);
     }
 
+    public DagRun failure() {
+        Preconditions.checkArgument(status == DagRunStatus.RUNNING);
+        Preconditions.checkNotNull(startDate);
+        Preconditions.checkArgument(finishDate == null);
+        return new DagRun(id, dag, createdDate, startDate, new DateTime(), DagRunStatus.FAILED, tasks);
+    }
+
+    public DagRun cancel() {
+        Preconditions.checkArgument(status == DagRunStatus.PENDING || status == DagRunStatus.RUNNING);
+        Preconditions.checkArgument(finishDate == null);
+        return new DagRun(id, dag, createdDate, startDate, new DateTime(), DagRunStatus.CANCELED, tasks);
+    }
+
     public DagRun update(TaskRun taskRun) {
         Preconditions.checkNotNull(taskRun);
         Preconditions.checkArgument(tasks.stream().anyMatch(t -> t.id() == taskRun.id()));
@@ -91,7 +91,7 @@ public class DagRunNotificationService {
     private void render(StringBuilder builder, OperationResult taskRun) {
         builder.append("Operation result:\r\n")
             .append("status: ").append(taskRun.status()).append("\r\n")
-            .append("output:\r\n").append(taskRun.status()).append("\r\n");
+            .append("output:\r\n").append(taskRun.output()).append("\r\n");
     }
 }
 
@@ -1,6 +1,7 @@
 package org.github.mitallast.taskflow.dag;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.github.mitallast.taskflow.operation.OperationResult;
 
 import java.util.Optional;
@@ -9,7 +10,7 @@ public interface DagRunPersistenceService {
 
     DagRun createDagRun(Dag dag);
 
-    ImmutableList<DagRun> findDagRuns();
+    ImmutableList<DagRun> findDagRuns(DagRunQuery query);
 
     ImmutableList<DagRun> findPendingDagRuns();
 
@@ -17,6 +18,12 @@ public interface DagRunPersistenceService {
 
     Optional<DagRun> findDagRun(long id);
 
+    /**
+     * Average duration in milliseconds of successful task runs by task token,
+     * over last {@code history} runs of all versions of dag.
+     */
+    ImmutableMap<String, Long> findTaskDurations(String dagToken, int history);
+
     boolean startDagRun(long id);
 
     boolean markDagRunSuccess(long id);
@@ -0,0 +1,91 @@
+package org.github.mitallast.taskflow.dag;
+
+import com.google.common.base.Preconditions;
+import org.joda.time.DateTime;
+
+/**
+ * Filter and page of dag runs, ordered by id descending.
+ * <p>
+ * Pagination is keyset based: next page is requested with {@code before} set to id of last dag run
+ * of previous page, so page cost does not depend on its offset.
+ */
+public class DagRunQuery {
+    private final Long before;
+    private final int limit;
+    private final DagRunStatus status;
+    private final String token;
+    private final DateTime from;
+    private final DateTime to;
+    private final boolean output;
+
+    public DagRunQuery(Long before, int limit, DagRunStatus status, String token, DateTime from, DateTime to, boolean output) {
+        Preconditions.checkArgument(limit > 0, "limit should be positive");
+        this.before = before;
+        this.limit = limit;
+        this.status = status;
+        this.token = token;
+        this.from = from;
+        this.to = to;
+        this.output = output;
+    }
+
+    /**
+     * Dag runs with id less than before, or null for first page
+     */
+    public Long before() {
+        return before;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public DagRunStatus status() {
+        return status;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Created date inclusive lower bound, or null
+     */
+    public DateTime from() {
+        return from;
+    }
+
+    /**
+     * Created date exclusive upper bound, or null
+     */
+    public DateTime to() {
+        return to;
+    }
+
+    /**
+     * Load operation output of task runs, or leave it empty
+     */
+    public boolean output() {
+        return output;
+    }
+
+    /**
+     * Same filter with another page
+     */
+    public DagRunQuery page(Long before, int limit) {
+        return new DagRunQuery(before, limit, status, token, from, to, output);
+    }
+
+    @Override
+    public String toString() {
+        return "DagRunQuery{" +
+            "before=" + before +
+            ", limit=" + limit +
+            ", status=" + status +
+            ", token='" + token + '\'' +
+            ", from=" + from +
+            ", to=" + to +
+            ", output=" + output +
+            '}';
+    }
+}
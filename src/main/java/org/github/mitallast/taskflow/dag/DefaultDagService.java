@@ -21,6 +21,8 @@ import org.github.mitallast.taskflow.operation.OperationService;
 import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
 import org.jgrapht.graph.DefaultEdge;
 
+import java.util.function.Supplier;
+
 public class DefaultDagService extends AbstractComponent implements DagService {
 
     private final DagPersistenceService dagPersistence;
@@ -109,6 +111,14 @@ public class DefaultDagService extends AbstractComponent implements DagService {
                     }
                 }
 
+                taskBuilder.on(task.retry() < 0).accept("retry", "should not be negative");
+                Errors policyBuilder = taskBuilder.builder("retryPolicy");
+                RetryPolicy policy = task.retryPolicy();
+                policyBuilder.notNull(policy.backoff()).accept("backoff", "required");
+                policyBuilder.on(policy.delay() < 0).accept("delay", "should not be negative");
+                policyBuilder.on(policy.maxDelay() < 0).accept("maxDelay", "should not be negative");
+                policyBuilder.on(policy.jitter() < 0 || policy.jitter() > 1).accept("jitter", "should be in range [0, 1]");
+
                 taskBuilder.notNull(task.command()).accept("command", "required");
                 if (task.command() != null) {
                     Errors commandBuilder = taskBuilder.builder("command");
@@ -141,7 +151,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
     public DagRun createDagRun(Dag dag) {
         Preconditions.checkNotNull(dag);
         DagRun dagRun = dagRunPersistence.createDagRun(dag);
-        dagRunExecutor.schedule(dagRun.id());
+        dagRunExecutor.schedule(dagRun);
         return dagRun;
     }
 
@@ -149,7 +159,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
     public boolean startDagRun(DagRun dagRun) {
         Preconditions.checkNotNull(dagRun);
         if (dagRunPersistence.startDagRun(dagRun.id())) {
-            triggerStatusUpdated(dagRun);
+            triggerStatusUpdated(dagRun, dagRun::start);
             return true;
         } else {
             return false;
@@ -160,7 +170,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
     public boolean markDagRunSuccess(DagRun dagRun) {
         Preconditions.checkNotNull(dagRun);
         if (dagRunPersistence.markDagRunSuccess(dagRun.id())) {
-            triggerStatusUpdated(dagRun);
+            triggerStatusUpdated(dagRun, dagRun::success);
             triggerRemove(dagRun);
             notificationService.sendDagSuccess(dagRun);
             return true;
@@ -173,7 +183,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
     public boolean markDagRunFailed(DagRun dagRun) {
         Preconditions.checkNotNull(dagRun);
         if (dagRunPersistence.markDagRunFailed(dagRun.id())) {
-            triggerStatusUpdated(dagRun);
+            triggerStatusUpdated(dagRun, dagRun::failure);
             triggerRemove(dagRun);
             notificationService.sendDagFailed(dagRun);
             return true;
@@ -186,7 +196,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
     public boolean markDagRunCanceled(DagRun dagRun) {
         Preconditions.checkNotNull(dagRun);
         if (dagRunPersistence.markDagRunCanceled(dagRun.id())) {
-            triggerStatusUpdated(dagRun);
+            triggerStatusUpdated(dagRun, dagRun::cancel);
             triggerRemove(dagRun);
             notificationService.sendDagCanceled(dagRun);
             return true;
@@ -197,11 +207,9 @@ public class DefaultDagService extends AbstractComponent implements DagService {
 
     @Override
     public TaskRun retry(DagRun dagRun, TaskRun taskRun) {
-        try {
-            return dagRunPersistence.retry(dagRun, taskRun);
-        } finally {
-            trigger(dagRun);
-        }
+        TaskRun retry = dagRunPersistence.retry(dagRun, taskRun);
+        trigger(dagRun, () -> dagRun.retry(retry));
+        return retry;
     }
 
     @Override
@@ -209,7 +217,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
         try {
             return dagRunPersistence.startTaskRun(taskRun.id());
         } finally {
-            triggerStatusUpdated(dagRun, taskRun);
+            triggerTaskStatusUpdated(dagRun, taskRun::start);
         }
     }
 
@@ -218,7 +226,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
         try {
             return dagRunPersistence.markTaskRunSuccess(taskRun.id(), operationResult);
         } finally {
-            triggerStatusUpdated(dagRun, taskRun);
+            triggerTaskStatusUpdated(dagRun, () -> taskRun.success(operationResult));
         }
     }
 
@@ -227,7 +235,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
         try {
             return dagRunPersistence.markTaskRunFailed(taskRun.id(), operationResult);
         } finally {
-            triggerStatusUpdated(dagRun, taskRun);
+            triggerTaskStatusUpdated(dagRun, () -> taskRun.failure(operationResult));
             notificationService.sendTaskFailed(dagRun, taskRun, operationResult);
         }
     }
@@ -237,7 +245,7 @@ public class DefaultDagService extends AbstractComponent implements DagService {
         try {
             return dagRunPersistence.markTaskRunCanceled(taskRun.id());
         } finally {
-            triggerStatusUpdated(dagRun, taskRun);
+            triggerTaskStatusUpdated(dagRun, taskRun::cancel);
         }
     }
 
@@ -245,29 +253,30 @@ public class DefaultDagService extends AbstractComponent implements DagService {
         eventBus.remove(channel(dagRun));
     }
 
-    private void trigger(DagRun dagRun) {
+    /*
+     * Events are built from the in-memory transition of the passed state,
+     * the database is not queried again to render them.
+     */
+
+    private void trigger(DagRun dagRun, Supplier<DagRun> updated) {
         try {
-            DagRun updated = dagRunPersistence.findDagRun(dagRun.id()).orElseThrow(IllegalArgumentException::new);
-            eventBus.trigger(channel(dagRun), new DagRunUpdated(updated));
+            eventBus.trigger(channel(dagRun), new DagRunUpdated(updated.get()));
         } catch (Throwable e) {
             logger.warn(e);
         }
     }
 
-    private void triggerStatusUpdated(DagRun dagRun) {
+    private void triggerStatusUpdated(DagRun dagRun, Supplier<DagRun> updated) {
         try {
-            DagRun updated = dagRunPersistence.findDagRun(dagRun.id()).orElseThrow(IllegalArgumentException::new);
-            eventBus.trigger(channel(dagRun), new DagRunStatusUpdated(updated));
+            eventBus.trigger(channel(dagRun), new DagRunStatusUpdated(updated.get()));
         } catch (Throwable e) {
             logger.warn(e);
         }
     }
 
-    private void triggerStatusUpdated(DagRun dagRun, TaskRun taskRun) {
+    private void triggerTaskStatusUpdated(DagRun dagRun, Supplier<TaskRun> updated) {
         try {
-            DagRun updated = dagRunPersistence.findDagRun(dagRun.id()).orElseThrow(IllegalArgumentException::new);
-            TaskRun updatedTask = updated.tasks().stream().filter(t -> t.id() == taskRun.id()).findFirst().orElseThrow(IllegalArgumentException::new);
-            eventBus.trigger(channel(dagRun), new TaskRunStatusUpdated(updatedTask));
+            eventBus.trigger(channel(dagRun), new TaskRunStatusUpdated(updated.get()));
         } catch (Throwable e) {
             logger.warn(e);
         }
@@ -0,0 +1,12 @@
+package org.github.mitallast.taskflow.dag;
+
+public enum RetryBackoff {
+    /**
+     * Same delay before each retry
+     */
+    FIXED,
+    /**
+     * Delay is doubled with each retry
+     */
+    EXPONENTIAL
+}
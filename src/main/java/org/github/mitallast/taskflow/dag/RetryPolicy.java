@@ -0,0 +1,126 @@
+package org.github.mitallast.taskflow.dag;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay before retry of failed task run.
+ * <p>
+ * Delay grows by backoff with each retry and is bounded by max delay, if it's positive.
+ * Jitter is a fraction of delay randomly subtracted from it, so dag runs failed at the same time
+ * by the same reason do not retry in lockstep.
+ */
+public class RetryPolicy {
+    public static final RetryPolicy IMMEDIATE = new RetryPolicy(RetryBackoff.FIXED, 0, 0, 0);
+
+    private final RetryBackoff backoff;
+    private final long delay;
+    private final long maxDelay;
+    private final double jitter;
+
+    /**
+     * @param delay    delay before first retry, in milliseconds
+     * @param maxDelay max delay before retry in milliseconds, 0 if unbounded
+     * @param jitter   fraction of delay in range [0, 1]
+     */
+    @JsonCreator
+    public RetryPolicy(
+        @JsonProperty("backoff") RetryBackoff backoff,
+        @JsonProperty("delay") long delay,
+        @JsonProperty("maxDelay") long maxDelay,
+        @JsonProperty("jitter") double jitter
+    ) {
+        this.backoff = backoff;
+        this.delay = delay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+    }
+
+    public static RetryPolicy fixed(long delay) {
+        return new RetryPolicy(RetryBackoff.FIXED, delay, 0, 0);
+    }
+
+    public static RetryPolicy exponential(long delay, long maxDelay) {
+        return new RetryPolicy(RetryBackoff.EXPONENTIAL, delay, maxDelay, 0);
+    }
+
+    public RetryPolicy jitter(double jitter) {
+        return new RetryPolicy(backoff, delay, maxDelay, jitter);
+    }
+
+    public RetryBackoff backoff() {
+        return backoff;
+    }
+
+    public long delay() {
+        return delay;
+    }
+
+    public long maxDelay() {
+        return maxDelay;
+    }
+
+    public double jitter() {
+        return jitter;
+    }
+
+    /**
+     * @param attempt number of retry, starting from 1
+     * @return delay before retry in milliseconds
+     */
+    public long delay(int attempt) {
+        return delay(attempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param random value in range [0, 1) used for jitter
+     */
+    public long delay(int attempt, double random) {
+        Preconditions.checkArgument(attempt > 0, "attempt should be positive");
+        long next = delay;
+        if (backoff == RetryBackoff.EXPONENTIAL && delay > 0) {
+            int shift = Math.min(attempt - 1, Long.numberOfLeadingZeros(delay) - 1);
+            next = delay << shift;
+        }
+        if (maxDelay > 0) {
+            next = Math.min(next, maxDelay);
+        }
+        return next - (long) (next * jitter * random);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RetryPolicy that = (RetryPolicy) o;
+
+        if (delay != that.delay) return false;
+        if (maxDelay != that.maxDelay) return false;
+        if (Double.compare(that.jitter, jitter) != 0) return false;
+        return backoff == that.backoff;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = backoff != null ? backoff.hashCode() : 0;
+        result = 31 * result + (int) (delay ^ (delay >>> 32));
+        result = 31 * result + (int) (maxDelay ^ (maxDelay >>> 32));
+        long temp = Double.doubleToLongBits(jitter);
+        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+            "backoff=" + backoff +
+            ", delay=" + delay +
+            ", maxDelay=" + maxDelay +
+            ", jitter=" + jitter +
+            '}';
+    }
+}
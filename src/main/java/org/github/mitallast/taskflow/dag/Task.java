@@ -14,6 +14,7 @@ public class Task {
     private final String token;
     private final ImmutableSet<String> depends;
     private final int retry;
+    private final RetryPolicy retryPolicy;
     private final String operation;
     private final OperationCommand command;
 
@@ -21,6 +22,17 @@ public class Task {
         this(0, 0, token, depends, retry, operation, command);
     }
 
+    public Task(String token, ImmutableSet<String> depends, int retry, RetryPolicy retryPolicy, String operation, OperationCommand command) {
+        this(0, 0, token, depends, retry, retryPolicy, operation, command);
+    }
+
+    public Task(long id, int version, String token, ImmutableSet<String> depends, int retry, String operation, OperationCommand command) {
+        this(id, version, token, depends, retry, RetryPolicy.IMMEDIATE, operation, command);
+    }
+
+    /**
+     * Task without retry policy is retried immediately
+     */
     @JsonCreator
     public Task(
         @JsonProperty("id") long id,
@@ -28,6 +40,7 @@ public class Task {
         @JsonProperty("token") String token,
         @JsonProperty("depends") ImmutableSet<String> depends,
         @JsonProperty("retry") int retry,
+        @JsonProperty("retryPolicy") RetryPolicy retryPolicy,
         @JsonProperty("operation") String operation,
         @JsonProperty("command") OperationCommand command) {
         this.id = id;
@@ -35,6 +48,7 @@ public class Task {
         this.token = token;
         this.depends = depends;
         this.retry = retry;
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.IMMEDIATE : retryPolicy;
         this.operation = operation;
         this.command = command;
     }
@@ -56,13 +70,17 @@ public class Task {
     }
 
     public Task depend(String... tokens) {
-        return new Task(id, version, token, ImmutableSet.<String>builder().addAll(depends).add(tokens).build(), retry, operation, command);
+        return new Task(id, version, token, ImmutableSet.<String>builder().addAll(depends).add(tokens).build(), retry, retryPolicy, operation, command);
     }
 
     public int retry() {
         return retry;
     }
 
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
     public String operation() {
         return operation;
     }
@@ -82,6 +100,7 @@ public class Task {
         if (version != task.version) return false;
         if (!token.equals(task.token)) return false;
         if (!depends.equals(task.depends)) return false;
+        if (!retryPolicy.equals(task.retryPolicy)) return false;
         if (!operation.equals(task.operation)) return false;
         return command.equals(task.command);
     }
@@ -93,6 +112,7 @@ public class Task {
         result = 31 * result + token.hashCode();
         result = 31 * result + depends.hashCode();
         result = 31 * result + retry;
+        result = 31 * result + retryPolicy.hashCode();
         result = 31 * result + operation.hashCode();
         result = 31 * result + command.hashCode();
         return result;
@@ -106,6 +126,7 @@ public class Task {
             ", token=" + token +
             ", depends=" + depends +
             ", retry=" + retry +
+            ", retryPolicy=" + retryPolicy +
             ", operation=" + operation +
             ", command=" + command +
             '}';
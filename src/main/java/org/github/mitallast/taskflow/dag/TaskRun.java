@@ -65,24 +65,31 @@ public class TaskRun implements Comparable<TaskRun> {
     }
 
     public TaskRun success() {
+        return success(operationResult);
+    }
+
+    public TaskRun success(OperationResult operationResult) {
         Preconditions.checkArgument(status == TaskRunStatus.RUNNING);
         Preconditions.checkNotNull(startDate);
         Preconditions.checkArgument(finishDate == null);
-        return new TaskRun(id, task, createdDate, new DateTime(), new DateTime(), TaskRunStatus.SUCCESS, operationResult);
+        return new TaskRun(id, task, createdDate, startDate, new DateTime(), TaskRunStatus.SUCCESS, operationResult);
     }
 
     public TaskRun failure() {
+        return failure(operationResult);
+    }
+
+    public TaskRun failure(OperationResult operationResult) {
         Preconditions.checkArgument(status == TaskRunStatus.RUNNING);
         Preconditions.checkNotNull(startDate);
         Preconditions.checkArgument(finishDate == null);
-        return new TaskRun(id, task, createdDate, new DateTime(), new DateTime(), TaskRunStatus.FAILED, operationResult);
+        return new TaskRun(id, task, createdDate, startDate, new DateTime(), TaskRunStatus.FAILED, operationResult);
     }
 
     public TaskRun cancel() {
-        Preconditions.checkArgument(status == TaskRunStatus.RUNNING);
-        Preconditions.checkNotNull(startDate);
+        Preconditions.checkArgument(status == TaskRunStatus.PENDING || status == TaskRunStatus.RUNNING);
         Preconditions.checkArgument(finishDate == null);
-        return new TaskRun(id, task, createdDate, new DateTime(), new DateTime(), TaskRunStatus.CANCELED, operationResult);
+        return new TaskRun(id, task, createdDate, startDate, new DateTime(), TaskRunStatus.CANCELED, operationResult);
     }
 
     @Override
@@ -9,6 +9,7 @@ import com.github.dockerjava.core.command.LogContainerResultCallback;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigList;
+import io.netty.util.Timeout;
 import org.github.mitallast.taskflow.common.component.AbstractComponent;
 import org.github.mitallast.taskflow.docker.DockerService;
 import org.github.mitallast.taskflow.operation.*;
@@ -60,9 +61,8 @@ public class DockerContainerLog extends AbstractComponent implements Operation {
             LogContainerCallback loggingCallback = new LogContainerCallback(context);
 
             try {
-                long left = System.currentTimeMillis() - start;
-                logger.info("left: {}ms", left);
-                long await = Math.max(1000, timeout - left);
+                long elapsed = System.currentTimeMillis() - start;
+                long await = Math.max(1000, timeout - elapsed);
                 logger.info("await: {}ms", await);
 
                 docker.logContainerCmd(container.getId())
@@ -71,13 +71,25 @@ public class DockerContainerLog extends AbstractComponent implements Operation {
                     .withTailAll()
                     .exec(loggingCallback);
 
-                loggingCallback.awaitCompletion(await, TimeUnit.MILLISECONDS);
+                // log stream is closed by timer on deadline, which completes callback
+                Timeout deadline = context.timer().schedule(() -> {
+                    try {
+                        loggingCallback.close();
+                    } catch (IOException e) {
+                        logger.warn("error close log stream", e);
+                    }
+                }, await, TimeUnit.MILLISECONDS, context.executionContext());
+                try {
+                    loggingCallback.awaitCompletion();
+                } finally {
+                    deadline.cancel();
+                    // stop streaming if task run is canceled
+                    loggingCallback.close();
+                }
 
                 output.append("container log: ")
                     .append(container.getId())
-                    .append('\n')
-                    .append(loggingCallback.builder)
-                    .append("\n");
+                    .append('\n');
             } catch (NotFoundException e) {
                 output.append("container not found: ")
                     .append(container.getId())
@@ -92,18 +104,14 @@ public class DockerContainerLog extends AbstractComponent implements Operation {
     public class LogContainerCallback extends ResultCallbackTemplate<LogContainerResultCallback, Frame> {
 
         private final OperationContext context;
-        private final StringBuilder builder;
 
         public LogContainerCallback(OperationContext context) {
             this.context = context;
-            this.builder = new StringBuilder();
         }
 
         @Override
         public void onNext(Frame item) {
-            String line = item.toString() + '\n';
-            builder.append(line);
-            context.outputListener().accept(line);
+            context.outputSink().write(item.toString() + '\n');
         }
     }
 }
\ No newline at end of file
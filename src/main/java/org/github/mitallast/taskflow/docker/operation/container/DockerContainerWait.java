@@ -1,10 +1,8 @@
 package org.github.mitallast.taskflow.docker.operation.container;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.exception.DockerClientException;
-import com.github.dockerjava.api.exception.NotModifiedException;
+import com.github.dockerjava.api.command.InspectContainerResponse;
 import com.github.dockerjava.api.model.Container;
-import com.github.dockerjava.core.command.WaitContainerResultCallback;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigList;
@@ -12,11 +10,11 @@ import org.github.mitallast.taskflow.common.component.AbstractComponent;
 import org.github.mitallast.taskflow.docker.DockerService;
 import org.github.mitallast.taskflow.operation.*;
 
-import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 
-public class DockerContainerWait extends AbstractComponent implements Operation {
+public class DockerContainerWait extends AbstractComponent implements AsyncOperation {
     private final DockerService dockerService;
 
     @Inject
@@ -41,49 +39,50 @@ public class DockerContainerWait extends AbstractComponent implements Operation
     }
 
     @Override
-    public OperationResult run(OperationCommand command, OperationContext context) throws IOException, InterruptedException {
+    public CompletionStage<OperationResult> runAsync(OperationCommand command, OperationContext context) {
         DockerClient docker = dockerService.docker();
         Config config = command.config().withFallback(reference());
 
         Config filters = config.getConfig("filters");
         long timeout = config.getDuration("timeout", TimeUnit.MILLISECONDS);
-        long start = System.currentTimeMillis();
+        long interval = config.getDuration("interval", TimeUnit.MILLISECONDS);
 
         logger.info("filters: {}", filters);
         logger.info("timeout: {}ms", timeout);
         List<Container> containers = dockerService.containers(filters);
 
-        StringBuilder output = new StringBuilder();
-        for (Container container : containers) {
-            try {
-                long left = System.currentTimeMillis() - start;
-                logger.info("left: {}ms", left);
-                long await = Math.max(1000, timeout - left);
-                logger.info("await: {}ms", await);
-
-                Integer statusCode = docker.waitContainerCmd(container.getId())
-                    .exec(new WaitContainerResultCallback())
-                    .awaitStatusCode(await, TimeUnit.MILLISECONDS);
-
+        // container state is polled instead of blocking on wait response
+        return OperationPoller.poll(context, interval, timeout, TimeUnit.MILLISECONDS, () -> {
+            StringBuilder output = new StringBuilder();
+            for (Container container : containers) {
+                InspectContainerResponse.ContainerState state = docker.inspectContainerCmd(container.getId()).exec().getState();
+                if (!exited(state)) {
+                    return null;
+                }
                 output.append("container: ")
                     .append(container.getId())
                     .append(" status code: ")
-                    .append(statusCode)
+                    .append(state.getExitCode())
                     .append('\n');
-            } catch (DockerClientException e) {
-                output.append("timeout: ")
-                    .append(container.getId())
-                    .append('\n')
-                    .append(e.getMessage());
-                return new OperationResult(OperationStatus.FAILED, output.toString());
-            } catch (NotModifiedException e) {
-                output.append("container already stopped: ")
-                    .append(container.getId())
-                    .append('\n')
-                    .append(e.getMessage());
-                return new OperationResult(OperationStatus.FAILED, output.toString());
             }
+            return new OperationResult(OperationStatus.SUCCESS, output.toString());
+        });
+    }
+
+    /**
+     * Created, paused or restarting container is not running too, so wait until it's actually exited.
+     * Old docker api has no status, container is exited if finish date is set.
+     */
+    private static boolean exited(InspectContainerResponse.ContainerState state) {
+        if (state.getStatus() != null) {
+            return "exited".equals(state.getStatus()) || "dead".equals(state.getStatus());
+        }
+        if (Boolean.TRUE.equals(state.getDead())) {
+            return true;
         }
-        return new OperationResult(OperationStatus.SUCCESS, output.toString());
+        return !Boolean.TRUE.equals(state.getRunning())
+            && !Boolean.TRUE.equals(state.getRestarting())
+            && state.getFinishedAt() != null
+            && !state.getFinishedAt().startsWith("0001-01-01");
     }
 }
@@ -0,0 +1,175 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.Task;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable index of dag version: tasks are addressed by ordinal, which is position in {@link Dag#tasks()},
+ * dependencies are stored as int adjacency arrays and topological order is precomputed.
+ * <p>
+ * Computed once per dag version and shared between all runs of it.
+ */
+public final class CompiledDag {
+
+    private final Dag dag;
+    private final Task[] tasks;
+
+    // task ids sorted, for allocation-free lookup of ordinal by task id
+    private final long[] sortedIds;
+    private final int[] sortedOrdinals;
+
+    // ordinal => ordinals of depends
+    private final int[][] depends;
+    // ordinal => ordinals of dependent tasks
+    private final int[][] dependents;
+    private final int[] topologicalOrder;
+
+    public CompiledDag(Dag dag) {
+        Preconditions.checkNotNull(dag);
+        Preconditions.checkArgument(!dag.tasks().isEmpty(), "Empty DAG");
+
+        this.dag = dag;
+        int size = dag.tasks().size();
+        tasks = dag.tasks().toArray(new Task[size]);
+
+        Map<String, Integer> tokens = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            Preconditions.checkArgument(tokens.put(tasks[i].token(), i) == null, "Duplicate task token " + tasks[i].token());
+        }
+
+        sortedIds = new long[size];
+        sortedOrdinals = new int[size];
+        Integer[] byId = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Long.compare(tasks[a].id(), tasks[b].id()));
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = tasks[byId[i]].id();
+            sortedOrdinals[i] = byId[i];
+            Preconditions.checkArgument(i == 0 || sortedIds[i - 1] != sortedIds[i], "Duplicate task id " + sortedIds[i]);
+        }
+
+        depends = new int[size][];
+        int[] dependentsCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            depends[i] = new int[tasks[i].depends().size()];
+            int j = 0;
+            for (String token : tasks[i].depends()) {
+                Integer ordinal = tokens.get(token);
+                Preconditions.checkArgument(ordinal != null, "Task " + tasks[i].token() + " depends on unknown task " + token);
+                depends[i][j++] = ordinal;
+                dependentsCount[ordinal]++;
+            }
+        }
+        dependents = new int[size][];
+        for (int i = 0; i < size; i++) {
+            dependents[i] = new int[dependentsCount[i]];
+            dependentsCount[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int depend : depends[i]) {
+                dependents[depend][dependentsCount[depend]++] = i;
+            }
+        }
+
+        // Kahn's algorithm, ready tasks are taken in ordinal order
+        topologicalOrder = new int[size];
+        int[] inDegree = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            inDegree[i] = depends[i].length;
+            if (inDegree[i] == 0) {
+                topologicalOrder[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int ordinal = topologicalOrder[head++];
+            for (int dependent : dependents[ordinal]) {
+                if (--inDegree[dependent] == 0) {
+                    topologicalOrder[tail++] = dependent;
+                }
+            }
+        }
+        Preconditions.checkArgument(tail == size, "Invalid DAG: cycle found");
+    }
+
+    public Dag dag() {
+        return dag;
+    }
+
+    public int size() {
+        return tasks.length;
+    }
+
+    public Task task(int ordinal) {
+        return tasks[ordinal];
+    }
+
+    /**
+     * @return ordinal of task, or -1 if dag does not contain task with this id
+     */
+    public int ordinal(long taskId) {
+        int index = Arrays.binarySearch(sortedIds, taskId);
+        return index < 0 ? -1 : sortedOrdinals[index];
+    }
+
+    /**
+     * Returned array must not be modified
+     */
+    public int[] depends(int ordinal) {
+        return depends[ordinal];
+    }
+
+    /**
+     * Returned array must not be modified
+     */
+    public int[] dependents(int ordinal) {
+        return dependents[ordinal];
+    }
+
+    /**
+     * Returned array must not be modified
+     */
+    public int[] topologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * Longest remaining path of each task: its own duration plus the longest path over its dependents.
+     * Dag run could not finish before the task with the longest path does, so task with longer path
+     * should be started first.
+     *
+     * @param durations expected duration of each task by ordinal
+     * @return longest remaining path by ordinal
+     */
+    public long[] criticalPath(long[] durations) {
+        Preconditions.checkArgument(durations.length == tasks.length, "Expected durations of " + tasks.length + " tasks");
+        long[] path = new long[tasks.length];
+        // dependents precede task in reverse topological order
+        for (int i = topologicalOrder.length - 1; i >= 0; i--) {
+            int ordinal = topologicalOrder[i];
+            long max = 0;
+            for (int dependent : dependents[ordinal]) {
+                max = Math.max(max, path[dependent]);
+            }
+            path[ordinal] = durations[ordinal] + max;
+        }
+        return path;
+    }
+
+    public ImmutableList<Task> dependsTasks(int ordinal) {
+        ImmutableList.Builder<Task> builder = ImmutableList.builder();
+        for (int depend : depends[ordinal]) {
+            builder.add(tasks[depend]);
+        }
+        return builder.build();
+    }
+}
@@ -1,6 +1,20 @@
 package org.github.mitallast.taskflow.executor;
 
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.github.mitallast.taskflow.dag.TaskRun;
+
 public interface DagRunExecutor {
     void cancel(long dagRunId);
+
     void schedule(long dagRunId);
+
+    /**
+     * Schedule already loaded dag run, e.g. just created one
+     */
+    void schedule(DagRun dagRun);
+
+    /**
+     * Apply task run state delta to the in-memory dag run and process it
+     */
+    void update(long dagRunId, TaskRun taskRun);
 }
@@ -1,119 +1,158 @@
 package org.github.mitallast.taskflow.executor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.github.mitallast.taskflow.dag.*;
 import org.github.mitallast.taskflow.executor.command.*;
 
-import static org.github.mitallast.taskflow.common.Immutable.map;
+import java.util.function.Supplier;
 
 public class DagRunProcessor {
 
     private final static Logger logger = LogManager.getLogger();
 
+    // dag id => compiled dag, dag version is immutable and has own id
+    private final Cache<Long, CompiledDag> compiled = CacheBuilder.newBuilder()
+        .maximumSize(1024)
+        .build();
+
+    /**
+     * Returns cached compiled dag, cached entry is checked to be built from the same dag.
+     */
+    public CompiledDag compile(Dag dag) {
+        CompiledDag compiledDag = compiled.getIfPresent(dag.id());
+        if (compiledDag == null || (compiledDag.dag() != dag && !compiledDag.dag().equals(dag))) {
+            compiledDag = new CompiledDag(dag);
+            compiled.put(dag.id(), compiledDag);
+        }
+        return compiledDag;
+    }
+
+    /**
+     * Build state of dag run over cached compiled dag.
+     */
+    public DagRunState state(DagRun dagRun) {
+        return new DagRunState(compile(dagRun.dag()), dagRun);
+    }
+
     public Command process(DagRun dagRun) {
-        Dag dag = dagRun.dag();
+        return processAll(dagRun).get(0);
+    }
+
+    public ImmutableList<Command> processAll(DagRun dagRun) {
+        return processAll(dagRun, () -> state(dagRun));
+    }
+
+    /**
+     * Returns all commands could be applied to dag run in current state at once:
+     * execute all ready tasks, retry all failed tasks or cancel all unfinished tasks.
+     * Result list is never empty.
+     * <p>
+     * State is requested only for running dag run, and should reflect all task runs of it.
+     */
+    public ImmutableList<Command> processAll(DagRun dagRun, Supplier<DagRunState> state) {
         logger.info("dag run {} status {}", dagRun.id(), dagRun.status());
         switch (dagRun.status()) {
             case PENDING:
                 logger.info("dag pending: {}", dagRun.id());
-                return new StartDagRunCommand(dagRun);
+                return ImmutableList.of(new StartDagRunCommand(dagRun));
             case RUNNING:
                 logger.info("dag running: {}", dagRun.id());
                 if (dagRun.tasks().isEmpty()) {
                     logger.warn("dag run does not contain tasks");
-                    return new FailedDagRunCommand(dagRun);
+                    return ImmutableList.of(new FailedDagRunCommand(dagRun));
                 }
 
-                DagRunState dagRunState = new DagRunState(dag, dagRun);
+                DagRunState dagRunState = state.get();
 
                 if (dagRunState.hasFailedOutOfRetry()) {
                     logger.warn("found failed tasks out of retry");
-                    CancelTaskRunCommand cancel = cancelUnfinishedTasks(dagRun);
-                    if (cancel != null) {
+                    ImmutableList<Command> cancel = cancelUnfinishedTasks(dagRun);
+                    if (!cancel.isEmpty()) {
                         return cancel;
                     }
                     logger.warn("failed dag run: {}", dagRun.id());
-                    return new FailedDagRunCommand(dagRun);
+                    return ImmutableList.of(new FailedDagRunCommand(dagRun));
                 }
 
                 if (dagRunState.hasLastRunCanceled()) {
                     logger.warn("found canceled tasks");
-                    CancelTaskRunCommand cancel = cancelUnfinishedTasks(dagRun);
-                    if (cancel != null) {
+                    ImmutableList<Command> cancel = cancelUnfinishedTasks(dagRun);
+                    if (!cancel.isEmpty()) {
                         return cancel;
                     }
                     logger.warn("cancel dag run: {}", dagRun.id());
-                    return new CancelDagRunCommand(dagRun);
+                    return ImmutableList.of(new CancelDagRunCommand(dagRun));
                 }
 
+                ImmutableList.Builder<Command> commands = ImmutableList.builder();
+
                 logger.info("check failed tasks");
-                for (TaskRun taskRun : dagRunState.lastTaskRuns()) {
-                    logger.debug("task run {} status {}", taskRun.id(), taskRun.status());
-
-                    // @todo add retry policy
-                    if (taskRun.status() == TaskRunStatus.FAILED) {
-                        Task task = dagRunState.task(taskRun);
-                        if (dagRunState.taskRuns(task).size() >= task.retry()) {
-                            logger.info("dag run has failed task run {} with out of retry, stop dag run", taskRun.id());
-                            CancelTaskRunCommand cancel = cancelUnfinishedTasks(dagRun);
-                            if (cancel != null) {
-                                return cancel;
-                            }
-                            return new FailedDagRunCommand(dagRun);
+                for (int ordinal = dagRunState.nextFailed(0); ordinal >= 0; ordinal = dagRunState.nextFailed(ordinal + 1)) {
+                    TaskRun taskRun = dagRunState.lastTaskRun(ordinal);
+                    Task task = dagRunState.dag().task(ordinal);
+                    if (dagRunState.runs(ordinal) >= task.retry()) {
+                        logger.info("dag run has failed task run {} with out of retry, stop dag run", taskRun.id());
+                        ImmutableList<Command> cancel = cancelUnfinishedTasks(dagRun);
+                        if (!cancel.isEmpty()) {
+                            return cancel;
                         }
-
-                        logger.info("dag run has failed task, retry: {}", taskRun.id());
-                        return new RetryTaskRunCommand(taskRun);
+                        return ImmutableList.of(new FailedDagRunCommand(dagRun));
                     }
+
+                    long delay = task.retryPolicy().delay(dagRunState.runs(ordinal));
+                    logger.info("dag run has failed task, retry: {} in {}ms", taskRun.id(), delay);
+                    commands.add(new RetryTaskRunCommand(taskRun, delay));
                 }
 
-                logger.info("check pending tasks");
-                for (TaskRun taskRun : dagRunState.lastTaskRuns()) {
-                    logger.debug("task run {} status {}", taskRun.id(), taskRun.status());
+                logger.info("check ready tasks");
+                for (int ordinal = dagRunState.nextReady(0); ordinal >= 0; ordinal = dagRunState.nextReady(ordinal + 1)) {
+                    TaskRun taskRun = dagRunState.lastTaskRun(ordinal);
+                    logger.info("execute task run {}", taskRun.id());
+                    commands.add(new ExecuteTaskRunCommand(taskRun));
+                }
 
-                    if (taskRun.status() == TaskRunStatus.PENDING) {
-                        if (dagRunState.taskRunDependsStatus(taskRun) == TaskRunStatus.SUCCESS) {
-                            logger.info("execute task run {}", taskRun.id());
-                            return new ExecuteTaskRunCommand(taskRun);
-                        } else {
-                            logger.info("await depends for task run {}: {}", taskRun.id(), map(dagRunState.depends(taskRun), Task::token));
-                        }
-                    }
+                ImmutableList<Command> ready = commands.build();
+                if (!ready.isEmpty()) {
+                    return ready;
                 }
 
                 if (dagRunState.hasUnfinished()) {
                     logger.info("await tasks");
-                    return new AwaitCommand(dagRun);
+                    return ImmutableList.of(new AwaitCommand(dagRun));
                 } else {
                     logger.info("dag run success");
-                    return new SuccessDagRunCommand(dagRun);
+                    return ImmutableList.of(new SuccessDagRunCommand(dagRun));
                 }
             case SUCCESS:
             case CANCELED:
             case FAILED:
                 logger.info("dag complete: {}", dagRun);
-                return new CompleteDagRunCommand(dagRun);
+                return ImmutableList.of(new CompleteDagRunCommand(dagRun));
             default:
                 throw new IllegalStateException("Illegal dag run " + dagRun.id() + " status: " + dagRun.status());
         }
     }
 
-    private CancelTaskRunCommand cancelUnfinishedTasks(DagRun dagRun) {
+    public ImmutableList<Command> cancelUnfinishedTasks(DagRun dagRun) {
+        ImmutableList.Builder<Command> commands = ImmutableList.builder();
         // check for running or pending tasks
         for (TaskRun taskRun : dagRun.tasks()) {
             logger.info("task run {} status {}", taskRun.id(), taskRun.status());
 
             if (taskRun.status() == TaskRunStatus.PENDING) {
                 logger.warn("cancel pending task run {}", taskRun.id());
-                return new CancelTaskRunCommand(taskRun);
+                commands.add(new CancelTaskRunCommand(taskRun));
             }
 
             if (taskRun.status() == TaskRunStatus.RUNNING) {
                 logger.info("cancel running task run {}", taskRun.id());
-                return new CancelTaskRunCommand(taskRun);
+                commands.add(new CancelTaskRunCommand(taskRun));
             }
         }
-        return null;
+        return commands.build();
     }
 }
@@ -1,190 +1,265 @@
 package org.github.mitallast.taskflow.executor;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableCollection;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMap;
-import org.github.mitallast.taskflow.common.Immutable;
 import org.github.mitallast.taskflow.dag.*;
-import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
-import org.jgrapht.graph.DefaultEdge;
 
-import static org.github.mitallast.taskflow.common.Immutable.*;
-import static org.github.mitallast.taskflow.dag.TaskRunStatus.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
+import static org.github.mitallast.taskflow.dag.TaskRunStatus.*;
 
+/**
+ * State of dag run over compiled dag: status of last run of each task is tracked
+ * in primitive arrays indexed by task ordinal.
+ * <p>
+ * Readiness is tracked Kahn-style: each task keeps count of depends not succeeded yet,
+ * and task run transition updates only counters of its dependents, so it costs O(out-degree).
+ * State is mutable and should be confined to a single thread.
+ */
 public final class DagRunState {
 
-    private final Dag dag;
-    @SuppressWarnings({"FieldCanBeLocal", "unused"})
-    private final DagRun dagRun;
+    private static final TaskRunStatus[] statuses = TaskRunStatus.values();
+
+    private final CompiledDag dag;
 
-    // task token => task
-    private final ImmutableMap<String, Task> tokenTaskMap;
-    // task id => task
-    private final ImmutableMap<Long, Task> idTaskMap;
+    // ordinal => last task run
+    private final TaskRun[] lastRuns;
+    // ordinal => status of last task run
+    private final byte[] status;
+    // ordinal => count of task runs
+    private final int[] runs;
+    // ordinal => count of failed task runs
+    private final int[] failures;
+    // ordinal => count of depends which last run is not succeeded
+    private final int[] remaining;
 
-    // task id => list of task run
-    @SuppressWarnings({"FieldCanBeLocal", "unused"})
-    private final ImmutableListMultimap<Long, TaskRun> idTaskRunMap;
-    // task id => last task run
-    private final ImmutableMap<Long, TaskRun> idTaskRunLatestMap;
+    // pending tasks with all depends succeeded
+    private final BitSet ready;
+    // tasks with failed last run
+    private final BitSet failed;
+
+    private int outOfRetry;
+    private int canceled;
+    private int unfinished;
 
     public DagRunState(Dag dag, DagRun dagRun) {
+        this(new CompiledDag(dag), dagRun);
+    }
+
+    public DagRunState(CompiledDag dag, DagRun dagRun) {
         Preconditions.checkNotNull(dag);
         Preconditions.checkNotNull(dagRun);
-        Preconditions.checkArgument(!dag.tasks().isEmpty(), "Empty DAG");
 
         this.dag = dag;
-        this.dagRun = dagRun;
+        int size = dag.size();
+        lastRuns = new TaskRun[size];
+        status = new byte[size];
+        runs = new int[size];
+        failures = new int[size];
+        remaining = new int[size];
+        ready = new BitSet(size);
+        failed = new BitSet(size);
 
-        idTaskMap = group(dag.tasks(), Task::id);
-        tokenTaskMap = group(dag.tasks(), Task::token);
+        for (TaskRun taskRun : sorted(dagRun.tasks())) {
+            int ordinal = dag.ordinal(taskRun.task().id());
+            Preconditions.checkArgument(ordinal >= 0, "task runs illegal references to task " + taskRun.id());
 
-        idTaskRunMap = groupSorted(dagRun.tasks(), task -> task.task().id());
-        idTaskRunLatestMap = reduce(idTaskRunMap, Immutable::last);
-
-        buildTaskDag();
+            // validate task run state - only one running|pending per task
+            TaskRun lastRun = lastRuns[ordinal];
+            if (lastRun != null) {
+                checkNext(lastRun, taskRun);
+            }
 
-        for (Task task : dag.tasks()) {
-            Preconditions.checkArgument(idTaskRunMap.containsKey(task.id()), "Task " + task.id() + " does not contain runs");
-        }
-        for (TaskRun taskRun : dagRun.tasks()) {
-            Preconditions.checkArgument(idTaskMap.containsKey(taskRun.task().id()), "task runs illegal references to task " + taskRun.id());
+            lastRuns[ordinal] = taskRun;
+            status[ordinal] = (byte) taskRun.status().ordinal();
+            runs[ordinal]++;
+            if (taskRun.status() == FAILED) {
+                failures[ordinal]++;
+            }
         }
-        // validate task run state - only one running|pending per task
-        for (Long id : idTaskRunMap.keySet()) {
-            TaskRun lastRun = null;
-            ImmutableList<TaskRun> taskRuns = idTaskRunMap.get(id);
-            for (TaskRun taskRun : taskRuns) {
-                if (lastRun != null) {
-                    Preconditions.checkArgument(lastRun.status() != PENDING, "Prev task run in pending state");
-                    Preconditions.checkArgument(lastRun.status() != RUNNING, "Prev task run in running state");
-                    Preconditions.checkArgument(lastRun.status() != CANCELED, "Prev task run in canceled state");
-                    Preconditions.checkNotNull(lastRun.finishDate());
-                    if (taskRun.status() != PENDING) {
-                        Preconditions.checkNotNull(taskRun.startDate());
-                        Preconditions.checkArgument(lastRun.finishDate().compareTo(taskRun.startDate()) <= 0, "Task run time conflict found");
-                    }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Preconditions.checkArgument(runs[ordinal] > 0, "Task " + dag.task(ordinal).id() + " does not contain runs");
+            for (int depend : dag.depends(ordinal)) {
+                if (status(depend) != SUCCESS) {
+                    remaining[ordinal]++;
                 }
-                lastRun = taskRun;
             }
-            Preconditions.checkNotNull(lastRun, "No run found for task " + id);
+            if (failures[ordinal] >= dag.task(ordinal).retry()) {
+                outOfRetry++;
+            }
+            enter(ordinal, status(ordinal));
         }
     }
 
-    public ImmutableCollection<TaskRun> lastTaskRuns() {
-        return idTaskRunLatestMap.values();
+    /**
+     * Task runs are expected to be sorted by id, sort copy only if not.
+     */
+    private static List<TaskRun> sorted(List<TaskRun> taskRuns) {
+        for (int i = 1; i < taskRuns.size(); i++) {
+            if (taskRuns.get(i - 1).compareTo(taskRuns.get(i)) > 0) {
+                List<TaskRun> copy = new ArrayList<>(taskRuns);
+                copy.sort(null);
+                return copy;
+            }
+        }
+        return taskRuns;
     }
 
-    public boolean hasFailedOutOfRetry() {
-        for (Task task : dag.tasks()) {
-            ImmutableList<TaskRun> taskRuns = idTaskRunMap.get(task.id());
-            if (taskRuns.stream().map(TaskRun::status).filter(FAILED::equals).count() >= task.retry()) {
-                return true;
-            }
+    private static void checkNext(TaskRun lastRun, TaskRun taskRun) {
+        Preconditions.checkArgument(lastRun.status() != PENDING, "Prev task run in pending state");
+        Preconditions.checkArgument(lastRun.status() != RUNNING, "Prev task run in running state");
+        Preconditions.checkArgument(lastRun.status() != CANCELED, "Prev task run in canceled state");
+        Preconditions.checkNotNull(lastRun.finishDate());
+        if (taskRun.status() != PENDING) {
+            Preconditions.checkNotNull(taskRun.startDate());
+            Preconditions.checkArgument(lastRun.finishDate().compareTo(taskRun.startDate()) <= 0, "Task run time conflict found");
         }
-        return false;
     }
 
-    public boolean hasLastRunCanceled() {
-        for (TaskRun taskRun : idTaskRunLatestMap.values()) {
-            if (taskRun.status() == CANCELED) {
-                return true;
+    /**
+     * Apply transition of task run, or new run of task like retry.
+     */
+    public void update(TaskRun taskRun) {
+        int ordinal = ordinal(taskRun);
+        TaskRun lastRun = lastRuns[ordinal];
+        TaskRunStatus prev = status(ordinal);
+        TaskRunStatus next = taskRun.status();
+
+        if (lastRun.id() == taskRun.id()) {
+            if (prev == next) {
+                lastRuns[ordinal] = taskRun;
+                return;
+            }
+            if (next == FAILED) {
+                failures[ordinal]++;
+            }
+        } else {
+            Preconditions.checkArgument(lastRun.id() < taskRun.id(), "Task run " + taskRun.id() + " is older than last run " + lastRun.id());
+            checkNext(lastRun, taskRun);
+            runs[ordinal]++;
+            if (next == FAILED) {
+                failures[ordinal]++;
             }
         }
-        return false;
-    }
+        if (failures[ordinal] == dag.task(ordinal).retry() && next == FAILED) {
+            outOfRetry++;
+        }
 
-    public boolean hasUnfinished() {
-        for (TaskRun taskRun : idTaskRunLatestMap.values()) {
-            if (taskRun.status() == PENDING) {
-                return true;
+        leave(ordinal, prev);
+        lastRuns[ordinal] = taskRun;
+        status[ordinal] = (byte) next.ordinal();
+        enter(ordinal, next);
+
+        if (prev != SUCCESS && next == SUCCESS) {
+            for (int dependent : dag.dependents(ordinal)) {
+                if (--remaining[dependent] == 0 && status(dependent) == PENDING) {
+                    ready.set(dependent);
+                }
             }
-            if (taskRun.status() == RUNNING) {
-                return true;
+        } else if (prev == SUCCESS && next != SUCCESS) {
+            for (int dependent : dag.dependents(ordinal)) {
+                if (remaining[dependent]++ == 0) {
+                    ready.clear(dependent);
+                }
             }
         }
-        return false;
     }
 
-    public TaskRunStatus taskRunDependsStatus(TaskRun taskRun) {
-        Task task = idTaskMap.get(taskRun.task().id());
-        return taskRunDependsStatus(task);
+    private void leave(int ordinal, TaskRunStatus prev) {
+        switch (prev) {
+            case PENDING:
+                ready.clear(ordinal);
+                unfinished--;
+                break;
+            case RUNNING:
+                unfinished--;
+                break;
+            case FAILED:
+                failed.clear(ordinal);
+                break;
+            case CANCELED:
+                canceled--;
+                break;
+            default:
+        }
     }
 
-    public TaskRunStatus taskRunDependsStatus(Task task) {
-        ImmutableList<Task> depends = depends(task);
-        return taskRunDependsStatus(depends);
+    private void enter(int ordinal, TaskRunStatus next) {
+        switch (next) {
+            case PENDING:
+                if (remaining[ordinal] == 0) {
+                    ready.set(ordinal);
+                }
+                unfinished++;
+                break;
+            case RUNNING:
+                unfinished++;
+                break;
+            case FAILED:
+                failed.set(ordinal);
+                break;
+            case CANCELED:
+                canceled++;
+                break;
+            default:
+        }
     }
 
-    public Task task(TaskRun taskRun) {
-        return idTaskMap.get(taskRun.task().id());
+    public CompiledDag dag() {
+        return dag;
     }
 
-    public ImmutableList<TaskRun> taskRuns(Task task) {
-        return idTaskRunMap.get(task.id());
+    public int size() {
+        return dag.size();
     }
 
-    private TaskRunStatus taskRunDependsStatus(ImmutableList<Task> depends) {
-        boolean hasPending = false;
-        boolean hasRunning = false;
+    public TaskRun lastTaskRun(int ordinal) {
+        return lastRuns[ordinal];
+    }
 
-        for (Task dependTask : depends) {
-            // ignore success
-            TaskRunStatus taskRunStatus = taskRun(dependTask).status();
-            switch (taskRunStatus) {
-                case PENDING:
-                    hasPending = true;
-                    break;
-                case RUNNING:
-                    hasRunning = true;
-                    break;
-                case SUCCESS:
-                    //ignore
-                    break;
-                default:
-                    throw new IllegalStateException("Illegal task run state: " + taskRunStatus);
-            }
-        }
-        if (hasRunning) {
-            return RUNNING;
-        }
-        if (hasPending) {
-            return PENDING;
-        }
+    public TaskRunStatus status(int ordinal) {
+        return statuses[status[ordinal]];
+    }
 
-        return TaskRunStatus.SUCCESS;
+    public int runs(int ordinal) {
+        return runs[ordinal];
     }
 
-    public TaskRun taskRun(Task task) {
-        return idTaskRunLatestMap.get(task.id());
+    public int remaining(int ordinal) {
+        return remaining[ordinal];
     }
 
-    public ImmutableList<Task> depends(TaskRun taskRun) {
-        Task task = idTaskMap.get(taskRun.task().id());
-        return depends(task);
+    /**
+     * @return next pending task ordinal with all depends succeeded, starting from ordinal inclusive, or -1
+     */
+    public int nextReady(int ordinal) {
+        return ready.nextSetBit(ordinal);
     }
 
-    public ImmutableList<Task> depends(Task task) {
-        ImmutableList.Builder<Task> builder = ImmutableList.builder();
-        for (String dependsToken : task.depends()) {
-            builder.add(tokenTaskMap.get(dependsToken));
-        }
-        return builder.build();
+    /**
+     * @return next task ordinal with failed last run, starting from ordinal inclusive, or -1
+     */
+    public int nextFailed(int ordinal) {
+        return failed.nextSetBit(ordinal);
     }
 
-    private DirectedAcyclicGraph<String, DefaultEdge> buildTaskDag() {
-        DirectedAcyclicGraph<String, DefaultEdge> graph = new DirectedAcyclicGraph<>(DefaultEdge.class);
-        for (Task task : dag.tasks()) {
-            graph.addVertex(task.token());
-        }
-        for (Task task : dag.tasks()) {
-            for (String depends : task.depends()) {
-                graph.addEdge(depends, task.token());
-            }
-        }
-        return graph;
+    public boolean hasFailedOutOfRetry() {
+        return outOfRetry > 0;
+    }
+
+    public boolean hasLastRunCanceled() {
+        return canceled > 0;
+    }
+
+    public boolean hasUnfinished() {
+        return unfinished > 0;
+    }
+
+    private int ordinal(TaskRun taskRun) {
+        int ordinal = dag.ordinal(taskRun.task().id());
+        Preconditions.checkArgument(ordinal >= 0, "Task " + taskRun.task().id() + " not found");
+        return ordinal;
     }
 }
@@ -1,25 +1,50 @@
 package org.github.mitallast.taskflow.executor;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
+import io.netty.util.Timeout;
 import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
 import org.github.mitallast.taskflow.dag.*;
 import org.github.mitallast.taskflow.operation.OperationResult;
 import org.github.mitallast.taskflow.operation.OperationStatus;
 import org.github.mitallast.taskflow.executor.command.*;
+import org.github.mitallast.taskflow.timer.TimerService;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Keeps state of each active dag run in memory and updates it incrementally
+ * on each transition. Database is used for write-through only, dag run is loaded
+ * from it on recovery or if it's not found in memory.
+ * <p>
+ * Dag runs are partitioned by id over single thread lanes: commands of one dag run
+ * are handled serially, different dag runs are handled in parallel.
+ */
 public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements DagRunExecutor {
 
     private final DagService dagService;
     private final DagRunPersistenceService persistenceService;
     private final DagRunProcessor dagRunScheduler;
+    private final TaskPriorityService taskPriority;
     private final TaskRunExecutor taskRunExecutor;
-    private final ExecutorService executorService;
+    private final TimerService timer;
+    private final ExecutorService[] lanes;
+
+    // dag run id => actual dag run, each entry accessed only in its lane thread
+    private final ConcurrentMap<Long, DagRun> dagRuns;
+    // dag run id => task readiness state of running dag run, updated with each task run transition
+    private final ConcurrentMap<Long, DagRunState> states;
+    // failed task run id => timeout of delayed retry, accessed only in lane thread of its dag run
+    private final ConcurrentMap<Long, Timeout> retries;
 
     @Inject
     public DefaultDagRunExecutor(
@@ -27,25 +52,39 @@ public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements
         DagService dagService,
         DagRunPersistenceService persistenceService,
         DagRunProcessor dagRunScheduler,
-        TaskRunExecutor taskRunExecutor
+        TaskPriorityService taskPriority,
+        TaskRunExecutor taskRunExecutor,
+        TimerService timer
     ) {
         super(config, DefaultDagRunExecutor.class);
         this.dagService = dagService;
         this.persistenceService = persistenceService;
         this.dagRunScheduler = dagRunScheduler;
+        this.taskPriority = taskPriority;
         this.taskRunExecutor = taskRunExecutor;
+        this.timer = timer;
 
-        executorService = Executors.newSingleThreadScheduledExecutor();
+        int threads = config.getInt("executor.dag_run.threads");
+        Preconditions.checkArgument(threads > 0, "executor.dag_run.threads should be positive");
+        lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("dag-run-executor-" + i)
+                .build());
+        }
+        dagRuns = new ConcurrentHashMap<>();
+        states = new ConcurrentHashMap<>();
+        retries = new ConcurrentHashMap<>();
     }
 
     @Override
     public void cancel(long dagRunId) {
         logger.info("cancel {}", dagRunId);
-        executorService.execute(() -> doCancel(dagRunId));
+        lane(dagRunId).execute(() -> doCancel(dagRunId));
     }
 
     private void doCancel(long dagRunId) {
-        Optional<DagRun> dagRunOpt = persistenceService.findDagRun(dagRunId);
+        Optional<DagRun> dagRunOpt = dagRun(dagRunId);
         if (!dagRunOpt.isPresent()) {
             logger.warn("dag run {} not found", dagRunId);
             return;
@@ -57,17 +96,12 @@ public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements
 
     private void cancel(DagRun dagRun) {
         if (dagRun.status() == DagRunStatus.PENDING || dagRun.status() == DagRunStatus.RUNNING) {
-            for (TaskRun taskRun : dagRun.tasks()) {
-                if (taskRun.status() == TaskRunStatus.PENDING) {
-                    handle(dagRun, new CancelTaskRunCommand(taskRun));
-                    return;
-                }
-                if (taskRun.status() == TaskRunStatus.RUNNING) {
-                    handle(dagRun, new CancelTaskRunCommand(taskRun));
-                    return;
-                }
+            ImmutableList<Command> commands = dagRunScheduler.cancelUnfinishedTasks(dagRun);
+            if (commands.isEmpty()) {
+                handle(dagRun.id(), ImmutableList.of(new CancelDagRunCommand(dagRun)));
+            } else {
+                handle(dagRun.id(), commands);
             }
-            handle(new CancelDagRunCommand(dagRun));
         } else {
             logger.warn("dag run {} not in progress", dagRun);
         }
@@ -76,13 +110,89 @@ public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements
     @Override
     public void schedule(long dagRunId) {
         logger.info("process {}", dagRunId);
-        executorService.execute(() -> process(dagRunId));
+        lane(dagRunId).execute(() -> process(dagRunId));
+    }
+
+    @Override
+    public void schedule(DagRun dagRun) {
+        logger.info("process {}", dagRun.id());
+        lane(dagRun.id()).execute(() -> {
+            if (dagRuns.putIfAbsent(dagRun.id(), dagRun) == null) {
+                states.remove(dagRun.id());
+            }
+            process(dagRun.id());
+        });
+    }
+
+    @Override
+    public void update(long dagRunId, TaskRun taskRun) {
+        logger.info("update {} task run {} {}", dagRunId, taskRun.id(), taskRun.status());
+        lane(dagRunId).execute(() -> {
+            DagRun dagRun = dagRuns.get(dagRunId);
+            if (dagRun != null) {
+                try {
+                    update(dagRun, taskRun);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("dag run {} does not contain task run {}, reload", dagRunId, taskRun.id());
+                    remove(dagRunId);
+                }
+            }
+            process(dagRunId);
+        });
+    }
+
+    private ExecutorService lane(long dagRunId) {
+        return lanes[(int) Math.floorMod(dagRunId, (long) lanes.length)];
+    }
+
+    private Optional<DagRun> dagRun(long dagRunId) {
+        DagRun dagRun = dagRuns.get(dagRunId);
+        if (dagRun != null) {
+            return Optional.of(dagRun);
+        }
+        logger.info("load dag run {}", dagRunId);
+        Optional<DagRun> dagRunOpt = persistenceService.findDagRun(dagRunId);
+        states.remove(dagRunId);
+        dagRunOpt.ifPresent(this::update);
+        return dagRunOpt;
+    }
+
+    private void update(DagRun dagRun) {
+        dagRuns.put(dagRun.id(), dagRun);
+    }
+
+    /**
+     * Apply task run transition to dag run and its state.
+     */
+    private void update(DagRun dagRun, TaskRun taskRun) {
+        update(dagRun.update(taskRun));
+        updateState(dagRun.id(), taskRun);
+    }
+
+    /**
+     * Append new task run to dag run and its state.
+     */
+    private void retry(DagRun dagRun, TaskRun taskRun) {
+        update(dagRun.retry(taskRun));
+        updateState(dagRun.id(), taskRun);
+    }
+
+    private void updateState(long dagRunId, TaskRun taskRun) {
+        DagRunState state = states.get(dagRunId);
+        if (state != null) {
+            state.update(taskRun);
+        }
+    }
+
+    private void remove(long dagRunId) {
+        dagRuns.remove(dagRunId);
+        states.remove(dagRunId);
     }
 
     private void process(long dagRunId) {
         try {
             logger.info("process {}", dagRunId);
-            Optional<DagRun> dagRunOpt = persistenceService.findDagRun(dagRunId);
+            Optional<DagRun> dagRunOpt = dagRun(dagRunId);
             if (!dagRunOpt.isPresent()) {
                 logger.warn("dag run {} not found", dagRunId);
                 return;
@@ -91,80 +201,163 @@ public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements
             process(dagRun);
         } catch (Exception e) {
             logger.warn("unexpected exception", e);
+            remove(dagRunId);
         }
     }
 
     private void process(DagRun dagRun) {
-        final Command cmd = dagRunScheduler.process(dagRun);
-        if (cmd instanceof DagRunCommand) {
-            handle((DagRunCommand) cmd);
-        } else if (cmd instanceof TaskRunCommand) {
-            handle(dagRun, (TaskRunCommand) cmd);
-        } else {
-            logger.warn("unexpected command: {}", cmd);
+        ImmutableList<Command> commands = dagRunScheduler.processAll(
+            dagRun,
+            () -> states.computeIfAbsent(dagRun.id(), id -> dagRunScheduler.state(dagRun))
+        );
+        // ready task runs are submitted to queue by priority, so it's applied even if queue has free slots
+        handle(dagRun.id(), taskPriority.order(dagRun, commands));
+    }
+
+    /**
+     * Apply all commands to dag run, and process it again once if state has been changed.
+     */
+    private void handle(long dagRunId, ImmutableList<Command> commands) {
+        boolean updated = false;
+        for (Command cmd : commands) {
+            if (cmd instanceof DagRunCommand) {
+                updated |= handle((DagRunCommand) cmd);
+            } else if (cmd instanceof TaskRunCommand) {
+                updated |= handle(dagRuns.get(dagRunId), (TaskRunCommand) cmd);
+            } else {
+                logger.warn("unexpected command: {}", cmd);
+            }
+        }
+        if (updated) {
+            reprocess(dagRunId);
         }
     }
 
-    private void handle(DagRunCommand cmd) {
+    /**
+     * Process dag run again if it's still in memory, completed dag run is not loaded again.
+     */
+    private void reprocess(long dagRunId) {
+        lane(dagRunId).execute(() -> {
+            DagRun dagRun = dagRuns.get(dagRunId);
+            if (dagRun != null) {
+                try {
+                    process(dagRun);
+                } catch (Exception e) {
+                    logger.warn("unexpected exception", e);
+                    remove(dagRunId);
+                }
+            }
+        });
+    }
+
+    private boolean handle(DagRunCommand cmd) {
         final DagRun dagRun = cmd.dagRun();
         if (cmd instanceof StartDagRunCommand) {
             logger.info("start dag run {}", dagRun.id());
             dagService.startDagRun(dagRun);
-            schedule(dagRun.id());
+            update(dagRun.start());
+            return true;
 
         } else if (cmd instanceof AwaitCommand) {
             logger.info("await dag run {}", dagRun.id());
+            return false;
 
         } else if (cmd instanceof FailedDagRunCommand) {
             logger.info("failed dag run {}", dagRun.id());
             dagService.markDagRunFailed(dagRun);
-            schedule(dagRun.id());
+            update(dagRun.failure());
+            return true;
 
         } else if (cmd instanceof SuccessDagRunCommand) {
             logger.info("sucess dag run {}", dagRun.id());
             dagService.markDagRunSuccess(dagRun);
-            schedule(dagRun.id());
+            update(dagRun.success());
+            return true;
 
         } else if (cmd instanceof CancelDagRunCommand) {
             logger.info("cancel dag run {}", dagRun.id());
             dagService.markDagRunCanceled(dagRun);
-            schedule(dagRun.id());
+            update(dagRun.cancel());
+            return true;
 
         } else if (cmd instanceof CompleteDagRunCommand) {
             logger.info("complete dag run {}", dagRun.id());
+            remove(dagRun.id());
+            return false;
 
         } else {
             logger.warn("unexpected dag run command: {}", cmd);
+            return false;
         }
     }
 
-    private void handle(DagRun dagRun, TaskRunCommand cmd) {
+    private boolean handle(DagRun dagRun, TaskRunCommand cmd) {
         final TaskRun taskRun = cmd.taskRun();
         if (cmd instanceof ExecuteTaskRunCommand) {
             logger.warn("execute task run: {}", taskRun.id());
             dagService.startTaskRun(dagRun, taskRun);
-            taskRunExecutor.schedule(dagRun, taskRun);
-            schedule(dagRun.id());
+            TaskRun started = taskRun.start();
+            update(dagRun, started);
+            taskRunExecutor.schedule(dagRun, started);
+            return true;
 
         } else if (cmd instanceof RetryTaskRunCommand) {
+            long delay = ((RetryTaskRunCommand) cmd).delay();
+            if (delay > 0) {
+                scheduleRetry(dagRun, taskRun, delay);
+                return false;
+            }
             logger.warn("retry task run: {}", taskRun.id());
-            dagService.retry(dagRun, taskRun);
-            schedule(dagRun.id());
+            TaskRun retry = dagService.retry(dagRun, taskRun);
+            retry(dagRun, retry);
+            return true;
 
         } else if (cmd instanceof CancelTaskRunCommand && taskRun.status() == TaskRunStatus.PENDING) {
             logger.warn("cancel pending task run {}", taskRun.id());
             persistenceService.markTaskRunCanceled(taskRun.id());
-            schedule(dagRun.id());
+            update(dagRun, taskRun.cancel());
+            return true;
 
         } else if (cmd instanceof CancelTaskRunCommand && taskRun.status() == TaskRunStatus.RUNNING) {
+            // dag run will be processed on task run canceled update
             logger.warn("cancel running task run: {}", taskRun.id());
-            taskRunExecutor.cancel(taskRun);
-            schedule(dagRun.id());
+            taskRunExecutor.cancel(dagRun, taskRun);
+            return false;
         } else {
             logger.warn("unexpected task run command: {}", cmd);
+            return false;
         }
     }
 
+    /**
+     * Retry failed task run after delay. Until then, dag run is processed as usual and retry command
+     * of the same task run is ignored. Retry is skipped if dag run is not running after delay.
+     */
+    private void scheduleRetry(DagRun dagRun, TaskRun taskRun, long delay) {
+        if (retries.containsKey(taskRun.id())) {
+            return;
+        }
+        logger.info("retry task run {} in {}ms", taskRun.id(), delay);
+        long dagRunId = dagRun.id();
+        retries.put(taskRun.id(), timer.schedule(() -> {
+            retries.remove(taskRun.id());
+            DagRun current = dagRuns.get(dagRunId);
+            if (current == null) {
+                // dag run has been unloaded, its retry command will be emitted again on load
+                process(dagRunId);
+                return;
+            }
+            if (current.status() != DagRunStatus.RUNNING) {
+                logger.info("dag run {} is not running, skip retry task run {}", dagRunId, taskRun.id());
+                return;
+            }
+            logger.warn("retry task run: {}", taskRun.id());
+            TaskRun retry = dagService.retry(current, taskRun);
+            retry(current, retry);
+            reprocess(dagRunId);
+        }, delay, TimeUnit.MILLISECONDS, lane(dagRunId)));
+    }
+
     private void failureRunningTasks(DagRun dagRun) {
         for (TaskRun taskRun : dagRun.tasks()) {
             if (taskRun.status() == TaskRunStatus.RUNNING) {
@@ -189,6 +382,8 @@ public class DefaultDagRunExecutor extends AbstractLifecycleComponent implements
 
     @Override
     protected void doClose() throws IOException {
-
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
     }
 }
@@ -9,8 +9,9 @@ import org.github.mitallast.taskflow.dag.DagService;
 import org.github.mitallast.taskflow.dag.Task;
 import org.github.mitallast.taskflow.dag.TaskRun;
 import org.github.mitallast.taskflow.executor.event.DagRunEvent;
-import org.github.mitallast.taskflow.executor.event.TaskRunNewOutputLine;
+import org.github.mitallast.taskflow.log.TaskLogService;
 import org.github.mitallast.taskflow.operation.*;
+import org.github.mitallast.taskflow.timer.TimerService;
 
 import java.util.concurrent.*;
 
@@ -20,9 +21,22 @@ public class DefaultTaskRunExecutor extends AbstractComponent implements TaskRun
     private final DagRunExecutor dagRunExecutor;
     private final OperationService operationService;
     private final EventBus<DagRunEvent> eventBus;
+    private final TaskRunQueue taskRunQueue;
+    private final TaskPriorityService taskPriority;
+    private final TaskLogService taskLogService;
+    // operation helper threads, like process output readers
     private final ExecutorService executorService;
+    // deadlines and delayed actions of operations
+    private final TimerService timer;
 
     private final ConcurrentMap<TaskRun, Future<?>> futures;
+    private final ConcurrentMap<Long, TaskRunOutput> outputs;
+    // output events batching
+    private final long outputInterval;
+    private final int outputMaxSize;
+    // bounded output kept for operation result
+    private final int outputHead;
+    private final int outputTail;
 
     @Inject
     public DefaultTaskRunExecutor(
@@ -30,19 +44,39 @@ public class DefaultTaskRunExecutor extends AbstractComponent implements TaskRun
         DagService dagService,
         DagRunExecutor dagRunExecutor,
         OperationService operationService,
-        EventBus<DagRunEvent> eventBus
+        EventBus<DagRunEvent> eventBus,
+        TaskRunQueue taskRunQueue,
+        TaskPriorityService taskPriority,
+        TaskLogService taskLogService,
+        TimerService timer
     ) {
         super(config, DefaultTaskRunExecutor.class);
         this.dagService = dagService;
         this.dagRunExecutor = dagRunExecutor;
         this.operationService = operationService;
         this.eventBus = eventBus;
+        this.taskRunQueue = taskRunQueue;
+        this.taskPriority = taskPriority;
+        this.taskLogService = taskLogService;
         this.executorService = Executors.newCachedThreadPool();
+        this.timer = timer;
         futures = new ConcurrentHashMap<>();
+        outputs = new ConcurrentHashMap<>();
+        outputInterval = config.getDuration("executor.task_run.output.interval", TimeUnit.MILLISECONDS);
+        outputMaxSize = (int) config.getBytes("executor.task_run.output.max_size").longValue();
+        outputHead = (int) config.getBytes("executor.task_run.output.head").longValue();
+        outputTail = (int) config.getBytes("executor.task_run.output.tail").longValue();
     }
 
     @Override
-    public void cancel(TaskRun taskRun) {
+    public void cancel(DagRun dagRun, TaskRun taskRun) {
+        if (taskRunQueue.remove(taskRun)) {
+            logger.info("task run {} canceled in queue", taskRun.id());
+            futures.remove(taskRun);
+            dagService.markTaskRunCanceled(dagRun, taskRun);
+            dagRunExecutor.update(dagRun.id(), taskRun.cancel());
+            return;
+        }
         Future future = futures.get(taskRun);
         if (future != null) {
             if (future.cancel(true)) {
@@ -57,53 +91,139 @@ public class DefaultTaskRunExecutor extends AbstractComponent implements TaskRun
 
     @Override
     public void schedule(DagRun dagRun, TaskRun taskRun) {
-        futures.computeIfAbsent(taskRun, t -> executorService.submit(() -> execute(dagRun, taskRun)));
+        Task task = taskRun.task();
+        if (!operationService.contains(task.operation())) {
+            logger.warn("task run {} operation {} not found", taskRun.id(), task.operation());
+            failure(dagRun, taskRun, new OperationResult(OperationStatus.FAILED, "operation not found"));
+            return;
+        }
+        Operation operation = operationService.operation(task.operation());
+        long priority = taskPriority.priority(dagRun, taskRun);
+        if (operation instanceof AsyncOperation) {
+            // async operation does not hold a thread, so it takes only operation limit in the queue
+            executeAsync(dagRun, taskRun, priority, (AsyncOperation) operation);
+        } else {
+            futures.computeIfAbsent(taskRun, t -> taskRunQueue.submit(dagRun, taskRun, priority, () -> execute(dagRun, taskRun, operation)));
+        }
     }
 
-    private void execute(DagRun dagRun, TaskRun taskRun) {
-        try {
-            Task task = taskRun.task();
-
-            Operation operation = operationService.operation(task.operation());
-            if (operation == null) {
-                logger.warn("task run {} operation {} not found", taskRun.id(), task.operation());
-                dagService.markTaskRunFailed(dagRun, taskRun, new OperationResult(OperationStatus.FAILED, "operation not found"));
-                dagRunExecutor.schedule(dagRun.id());
-                return;
-            }
+    private OperationContext context(DagRun dagRun, TaskRun taskRun) {
+        TaskRunOutput output = outputs.computeIfAbsent(taskRun.id(), id -> new TaskRunOutput(
+            id,
+            taskLogService,
+            new TaskRunOutputBatcher("dag/run/" + dagRun.id(), id, eventBus, timer, executorService, outputInterval, outputMaxSize),
+            new OutputCollector(outputHead, outputTail)
+        ));
+        return new OperationContext(executorService, timer, output);
+    }
 
-            OperationContext context = new OperationContext(
-                executorService,
-                line -> eventBus.trigger("dag/run/" + dagRun.id(), new TaskRunNewOutputLine(taskRun.id(), line))
-            );
-            OperationResult operationResult = operation.run(task.command(), context);
-
-            logger.info("status: {}", operationResult.status());
-            switch (operationResult.status()) {
-                case SUCCESS:
-                    logger.info("task run {} operation success: {}", taskRun.id(), operationResult);
-                    dagService.markTaskRunSuccess(dagRun, taskRun, operationResult);
-                    dagRunExecutor.schedule(dagRun.id());
-                    break;
-                case FAILED:
-                    logger.error("task run {} operation failed: {}", taskRun.id(), operationResult);
-                    dagService.markTaskRunFailed(dagRun, taskRun, operationResult);
-                    dagRunExecutor.schedule(dagRun.id());
-                    break;
-                default:
-                    logger.warn("unexpected: {}", operationResult);
+    /**
+     * Flush output of finished task run, before its status is published.
+     *
+     * @return operation result with collected head and tail of output prepended
+     */
+    private OperationResult closeOutput(TaskRun taskRun, OperationResult operationResult) {
+        TaskRunOutput output = outputs.remove(taskRun.id());
+        if (output == null) {
+            taskLogService.close(taskRun.id());
+            return operationResult;
+        }
+        output.close();
+        if (operationResult == null || output.collector().size() == 0) {
+            return operationResult;
+        }
+        return new OperationResult(operationResult.status(), output.collector() + operationResult.output());
+    }
+
+    private void executeAsync(DagRun dagRun, TaskRun taskRun, long priority, AsyncOperation operation) {
+        CompletableFuture<OperationResult> future = new CompletableFuture<>();
+        if (futures.putIfAbsent(taskRun, future) != null) {
+            return;
+        }
+        future.whenComplete((operationResult, e) -> {
+            try {
+                if (e instanceof CancellationException) {
+                    canceled(dagRun, taskRun);
+                } else if (e != null) {
+                    logger.warn("task run {} failed", taskRun.id(), e);
+                    failure(dagRun, taskRun, new OperationResult(OperationStatus.FAILED, e.toString()));
+                } else {
+                    complete(dagRun, taskRun, operationResult);
+                }
+            } finally {
+                futures.remove(taskRun);
             }
+        });
+        // queued task run is canceled by queue, started one by future
+        taskRunQueue.submitAsync(dagRun, taskRun, priority, () -> {
+            try {
+                CompletableFuture<OperationResult> stage = operation.runAsync(taskRun.task().command(), context(dagRun, taskRun))
+                    .toCompletableFuture();
+                // propagate task run cancel to operation
+                future.whenComplete((operationResult, e) -> stage.cancel(true));
+                stage.whenComplete((operationResult, e) -> {
+                    if (e != null) {
+                        future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                    } else {
+                        future.complete(operationResult);
+                    }
+                });
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        });
+    }
+
+    private void execute(DagRun dagRun, TaskRun taskRun, Operation operation) {
+        try {
+            OperationResult operationResult = operation.run(taskRun.task().command(), context(dagRun, taskRun));
+            complete(dagRun, taskRun, operationResult);
         } catch (InterruptedException e) {
-            logger.warn("task run {} canceled", taskRun.id(), e);
-            dagService.markTaskRunCanceled(dagRun, taskRun);
-            dagRunExecutor.schedule(dagRun.id());
+            canceled(dagRun, taskRun);
         } catch (Exception e) {
             logger.warn("task run {} failed", taskRun.id(), e);
-            dagService.markTaskRunFailed(dagRun, taskRun, new OperationResult(OperationStatus.FAILED, e.toString()));
-            dagRunExecutor.schedule(dagRun.id());
+            failure(dagRun, taskRun, new OperationResult(OperationStatus.FAILED, e.toString()));
         } finally {
             // cleanup to prevent memory leak
             futures.remove(taskRun);
         }
     }
+
+    private void complete(DagRun dagRun, TaskRun taskRun, OperationResult result) {
+        OperationResult operationResult = closeOutput(taskRun, result);
+        logger.info("status: {}", operationResult.status());
+        switch (operationResult.status()) {
+            case SUCCESS:
+                logger.info("task run {} operation success: {}", taskRun.id(), operationResult);
+                dagService.markTaskRunSuccess(dagRun, taskRun, operationResult);
+                dagRunExecutor.update(dagRun.id(), taskRun.success(operationResult));
+                break;
+            case FAILED:
+                logger.error("task run {} operation failed: {}", taskRun.id(), operationResult);
+                failed(dagRun, taskRun, operationResult);
+                break;
+            default:
+                logger.warn("unexpected: {}", operationResult);
+        }
+    }
+
+    private void failure(DagRun dagRun, TaskRun taskRun, OperationResult result) {
+        failed(dagRun, taskRun, closeOutput(taskRun, result));
+    }
+
+    /**
+     * @param operationResult result with output of closed task log
+     */
+    private void failed(DagRun dagRun, TaskRun taskRun, OperationResult operationResult) {
+        dagService.markTaskRunFailed(dagRun, taskRun, operationResult);
+        dagRunExecutor.update(dagRun.id(), taskRun.failure(operationResult));
+    }
+
+    private void canceled(DagRun dagRun, TaskRun taskRun) {
+        logger.warn("task run {} canceled", taskRun.id());
+        closeOutput(taskRun, null);
+        dagService.markTaskRunCanceled(dagRun, taskRun);
+        dagRunExecutor.update(dagRun.id(), taskRun.cancel());
+    }
 }
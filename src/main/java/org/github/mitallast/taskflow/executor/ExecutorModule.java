@@ -9,6 +9,8 @@ public class ExecutorModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(DagRunProcessor.class).asEagerSingleton();
+        bind(TaskRunQueue.class).asEagerSingleton();
+        bind(TaskPriorityService.class).asEagerSingleton();
         bind(DagRunExecutor.class).to(DefaultDagRunExecutor.class).asEagerSingleton();
         bind(TaskRunExecutor.class).to(DefaultTaskRunExecutor.class).asEagerSingleton();
 
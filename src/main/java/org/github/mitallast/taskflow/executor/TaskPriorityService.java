@@ -0,0 +1,140 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import org.github.mitallast.taskflow.common.component.AbstractComponent;
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.github.mitallast.taskflow.dag.DagRunPersistenceService;
+import org.github.mitallast.taskflow.dag.TaskRun;
+import org.github.mitallast.taskflow.executor.command.Command;
+import org.github.mitallast.taskflow.executor.command.ExecuteTaskRunCommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Critical path first priority of task runs: task with the longest remaining path to the end of dag
+ * is started first, so long chains of tasks do not wait for a slot behind short independent tasks.
+ * <p>
+ * Path is weighted by average duration of successful task runs over recent runs of dag, task without
+ * history is weighted by default duration. Priorities are cached per dag version and reloaded after expire.
+ * Durations are loaded in background, so callers are not blocked by database: until load is finished,
+ * new dag is prioritized by default durations, and cached one by previous priorities.
+ */
+public class TaskPriorityService extends AbstractComponent {
+
+    private final DagRunPersistenceService persistenceService;
+    private final DagRunProcessor dagRunProcessor;
+    private final int history;
+    private final long defaultDuration;
+
+    // loads task durations out of caller thread
+    private final ListeningExecutorService executor;
+    // compiled dag => priority by task ordinal, compiled dag is cached per dag version by processor
+    private final LoadingCache<CompiledDag, long[]> priorities;
+
+    @Inject
+    public TaskPriorityService(Config config, DagRunPersistenceService persistenceService, DagRunProcessor dagRunProcessor) {
+        super(config.getConfig("executor.task_run.priority"), TaskPriorityService.class);
+        this.persistenceService = persistenceService;
+        this.dagRunProcessor = dagRunProcessor;
+        history = this.config.getInt("history");
+        Preconditions.checkArgument(history > 0, "executor.task_run.priority.history should be positive");
+        defaultDuration = this.config.getDuration("default_duration", TimeUnit.MILLISECONDS);
+        executor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("task-priority-%d")
+            .setDaemon(true)
+            .build()));
+        priorities = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .weakKeys()
+            .refreshAfterWrite(this.config.getDuration("expire", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)
+            .build(new CacheLoader<CompiledDag, long[]>() {
+                @Override
+                public long[] load(CompiledDag dag) {
+                    // put replaces value even if load is not completed yet, unlike refresh
+                    executor.execute(() -> priorities.put(dag, dag.criticalPath(durations(dag))));
+                    return dag.criticalPath(defaultDurations(dag));
+                }
+
+                @Override
+                public ListenableFuture<long[]> reload(CompiledDag dag, long[] previous) {
+                    return executor.submit(() -> dag.criticalPath(durations(dag)));
+                }
+            });
+    }
+
+    /**
+     * @return longest remaining path of task in milliseconds, or 0 if task is not found in dag
+     */
+    public long priority(DagRun dagRun, TaskRun taskRun) {
+        CompiledDag dag = dagRunProcessor.compile(dagRun.dag());
+        int ordinal = dag.ordinal(taskRun.task().id());
+        return ordinal < 0 ? 0 : priorities(dag)[ordinal];
+    }
+
+    /**
+     * Returned array must not be modified
+     */
+    public long[] priorities(CompiledDag dag) {
+        return priorities.getUnchecked(dag);
+    }
+
+    /**
+     * Stable sort of commands, so task runs with higher priority are executed first.
+     * Other commands are kept before execute commands.
+     */
+    public ImmutableList<Command> order(DagRun dagRun, ImmutableList<Command> commands) {
+        // execute commands are the last ones, see DagRunProcessor
+        if (commands.size() < 2 || !(commands.get(commands.size() - 1) instanceof ExecuteTaskRunCommand)) {
+            return commands;
+        }
+        CompiledDag dag = dagRunProcessor.compile(dagRun.dag());
+        long[] path = priorities(dag);
+        List<Command> sorted = new ArrayList<>(commands);
+        sorted.sort(Comparator.comparingLong(cmd -> {
+            if (cmd instanceof ExecuteTaskRunCommand) {
+                int ordinal = dag.ordinal(((ExecuteTaskRunCommand) cmd).taskRun().task().id());
+                return ordinal < 0 ? 0 : -path[ordinal];
+            }
+            return Long.MIN_VALUE;
+        }));
+        return ImmutableList.copyOf(sorted);
+    }
+
+    private long[] durations(CompiledDag dag) {
+        ImmutableMap<String, Long> history = ImmutableMap.of();
+        try {
+            history = persistenceService.findTaskDurations(dag.dag().token(), this.history);
+        } catch (Exception e) {
+            // priority is an optimization only, dag run is executed with default durations
+            logger.warn("failed to load task durations of dag {}", dag.dag().token(), e);
+        }
+        long[] durations = new long[dag.size()];
+        for (int ordinal = 0; ordinal < durations.length; ordinal++) {
+            durations[ordinal] = history.getOrDefault(dag.task(ordinal).token(), defaultDuration);
+        }
+        logger.debug("dag {} task durations: {}", dag.dag().id(), history);
+        return durations;
+    }
+
+    private long[] defaultDurations(CompiledDag dag) {
+        long[] durations = new long[dag.size()];
+        Arrays.fill(durations, defaultDuration);
+        return durations;
+    }
+}
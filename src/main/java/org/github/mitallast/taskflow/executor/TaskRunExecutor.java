@@ -5,7 +5,7 @@ import org.github.mitallast.taskflow.dag.TaskRun;
 
 public interface TaskRunExecutor {
 
-    void cancel(TaskRun taskRun);
+    void cancel(DagRun dagRun, TaskRun taskRun);
 
     void schedule(DagRun dagRun, TaskRun taskRun);
 }
@@ -0,0 +1,58 @@
+package org.github.mitallast.taskflow.executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.github.mitallast.taskflow.log.TaskLogService;
+import org.github.mitallast.taskflow.log.TaskLogWriter;
+import org.github.mitallast.taskflow.operation.OutputCollector;
+import org.github.mitallast.taskflow.operation.OutputSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Output of running task run: full output is appended to task run log, published to subscribers
+ * by batches, and bounded head and tail of it is kept for operation result.
+ * <p>
+ * Each sink reads its own view of output buffer, so output is copied only into sink buffers.
+ */
+public class TaskRunOutput implements OutputSink {
+    private final static Logger logger = LogManager.getLogger();
+
+    private final long taskRunId;
+    private final TaskLogService taskLogService;
+    private final TaskLogWriter log;
+    private final TaskRunOutputBatcher batcher;
+    private final OutputCollector collector;
+
+    public TaskRunOutput(long taskRunId, TaskLogService taskLogService, TaskRunOutputBatcher batcher, OutputCollector collector) {
+        this.taskRunId = taskRunId;
+        this.taskLogService = taskLogService;
+        this.log = taskLogService.writer(taskRunId);
+        this.batcher = batcher;
+        this.collector = collector;
+    }
+
+    @Override
+    public void write(ByteBuffer output) {
+        try {
+            log.append(output.duplicate());
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("task run {} error append log", taskRunId, e);
+        }
+        collector.write(output.duplicate());
+        batcher.write(output.duplicate());
+    }
+
+    public OutputCollector collector() {
+        return collector;
+    }
+
+    /**
+     * Publish pending batch and close task run log
+     */
+    public void close() {
+        batcher.flush();
+        taskLogService.close(taskRunId);
+    }
+}
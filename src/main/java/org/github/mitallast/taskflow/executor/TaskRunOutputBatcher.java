@@ -0,0 +1,130 @@
+package org.github.mitallast.taskflow.executor;
+
+import io.netty.util.Timeout;
+import org.github.mitallast.taskflow.common.EventBus;
+import org.github.mitallast.taskflow.executor.event.DagRunEvent;
+import org.github.mitallast.taskflow.executor.event.TaskRunNewOutput;
+import org.github.mitallast.taskflow.operation.OutputSink;
+import org.github.mitallast.taskflow.timer.TimerService;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces output lines of task run into batches, bounded by size and by time since first line,
+ * and publishes each batch as single event.
+ * <p>
+ * Output is collected as bytes, and decoded once per batch. Batches are published in order
+ * outside of the batcher lock, so slow subscribers do not block output writers.
+ */
+public class TaskRunOutputBatcher implements OutputSink {
+    private final String channel;
+    private final long taskRunId;
+    private final EventBus<DagRunEvent> eventBus;
+    private final TimerService timer;
+    private final Executor executor;
+    private final long interval;
+    private final int maxSize;
+
+    private final Queue<TaskRunNewOutput> pending;
+    private final AtomicBoolean publishing;
+
+    // guarded by this
+    private byte[] batch;
+    private int size;
+    private int lines;
+    private Timeout scheduled;
+
+    public TaskRunOutputBatcher(
+        String channel,
+        long taskRunId,
+        EventBus<DagRunEvent> eventBus,
+        TimerService timer,
+        Executor executor,
+        long interval,
+        int maxSize
+    ) {
+        this.channel = channel;
+        this.taskRunId = taskRunId;
+        this.eventBus = eventBus;
+        this.timer = timer;
+        this.executor = executor;
+        this.interval = interval;
+        this.maxSize = maxSize;
+        this.batch = new byte[0];
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.publishing = new AtomicBoolean();
+    }
+
+    @Override
+    public void write(ByteBuffer output) {
+        synchronized (this) {
+            int length = output.remaining();
+            if (size + length > batch.length) {
+                batch = Arrays.copyOf(batch, Math.max(size + length, Math.min(batch.length * 2, maxSize)));
+            }
+            output.get(batch, size, length);
+            for (int i = size; i < size + length; i++) {
+                if (batch[i] == '\n') {
+                    lines++;
+                }
+            }
+            size += length;
+            if (size < maxSize) {
+                if (scheduled == null) {
+                    // flush publishes events, so it's not executed in timer thread
+                    scheduled = timer.schedule(this::flush, interval, TimeUnit.MILLISECONDS, executor);
+                }
+                return;
+            }
+            swap();
+        }
+        publish();
+    }
+
+    /**
+     * Publish collected lines, if any
+     */
+    public void flush() {
+        synchronized (this) {
+            swap();
+        }
+        publish();
+    }
+
+    // guarded by this
+    private void swap() {
+        if (scheduled != null) {
+            scheduled.cancel();
+            scheduled = null;
+        }
+        if (size == 0) {
+            return;
+        }
+        pending.add(new TaskRunNewOutput(taskRunId, new String(batch, 0, size, StandardCharsets.UTF_8), lines));
+        size = 0;
+        lines = 0;
+    }
+
+    /**
+     * Single thread publishes pending batches at once, so events are not reordered.
+     */
+    private void publish() {
+        while (!pending.isEmpty() && publishing.compareAndSet(false, true)) {
+            try {
+                TaskRunNewOutput event;
+                while ((event = pending.poll()) != null) {
+                    eventBus.trigger(channel, event);
+                }
+            } finally {
+                publishing.set(false);
+            }
+        }
+    }
+}
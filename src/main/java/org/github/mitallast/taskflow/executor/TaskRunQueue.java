@@ -0,0 +1,293 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
+import org.github.mitallast.taskflow.dag.DagRun;
+import org.github.mitallast.taskflow.dag.TaskRun;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue of task runs waiting for an execution slot.
+ * <p>
+ * At most {@code slots} task runs are executed at once, and each operation is limited
+ * by its own limit, matched by operation id or by prefix pattern like {@code docker-container-*}.
+ * Task runs of older dag runs are dispatched first, task runs of one dag run are dispatched
+ * by priority, see {@link TaskPriorityService}. Task run which operation has no free slot
+ * does not block task runs of other operations.
+ * <p>
+ * Async operations do not hold a thread while waiting, so they take no slot, but still
+ * are limited by operation limit until returned stage is completed.
+ */
+public class TaskRunQueue extends AbstractLifecycleComponent {
+
+    private static final Comparator<Entry> ORDER = Comparator
+        .comparingLong((Entry entry) -> entry.dagRun.id())
+        .thenComparingLong(entry -> -entry.priority)
+        .thenComparingLong(entry -> entry.taskRun.id())
+        .thenComparingLong(entry -> entry.seq);
+
+    private final int slots;
+    private final ImmutableMap<String, Integer> limits;
+    private final ExecutorService executorService;
+
+    // guarded by this
+    private final TreeSet<Entry> queue;
+    // task run id => entry not started yet, including dispatched to executor
+    private final Map<Long, Entry> queued;
+    private final Map<String, Integer> running;
+    private int runningTotal;
+    private int runningAsync;
+    private int queuedAsync;
+    private long seq;
+    private long dispatched;
+    private long waitTotalMillis;
+    private long waitMaxMillis;
+
+    @Inject
+    public TaskRunQueue(Config config) {
+        // number of threads is bounded by slots
+        this(config, Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("task-run-executor-%d")
+            .build()));
+    }
+
+    TaskRunQueue(Config config, ExecutorService executorService) {
+        super(config.getConfig("executor.task_run"), TaskRunQueue.class);
+        slots = this.config.getInt("slots");
+        Preconditions.checkArgument(slots > 0, "executor.task_run.slots should be positive");
+
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (Map.Entry<String, ConfigValue> limit : this.config.getConfig("limits").root().entrySet()) {
+            int value = ((Number) limit.getValue().unwrapped()).intValue();
+            Preconditions.checkArgument(value > 0, "limit of %s should be positive", limit.getKey());
+            builder.put(limit.getKey(), value);
+        }
+        limits = builder.build();
+        this.executorService = executorService;
+
+        queue = new TreeSet<>(ORDER);
+        queued = new HashMap<>();
+        running = new HashMap<>();
+    }
+
+    /**
+     * Enqueue task run, runnable is executed once a slot for its operation is available.
+     *
+     * @return future completed after runnable has been executed, slot is released after future completion
+     */
+    public Future<?> submit(DagRun dagRun, TaskRun taskRun, Runnable runnable) {
+        return submit(dagRun, taskRun, 0, runnable);
+    }
+
+    /**
+     * Enqueue task run, task runs of the same dag run with higher priority are dispatched first.
+     *
+     * @return future completed after runnable has been executed, slot is released after future completion,
+     * so {@link #stats()} may still count task run as running
+     */
+    public synchronized Future<?> submit(DagRun dagRun, TaskRun taskRun, long priority, Runnable runnable) {
+        return enqueue(new Entry(seq++, dagRun, taskRun, priority, new FutureTask<>(runnable, null), false));
+    }
+
+    /**
+     * Enqueue task run of async operation, it does not take a slot, only operation limit.
+     * Limit is held until stage returned by start is completed.
+     *
+     * @return future completed after operation has been started
+     */
+    public synchronized Future<?> submitAsync(DagRun dagRun, TaskRun taskRun, long priority, Supplier<CompletionStage<?>> start) {
+        queuedAsync++;
+        return enqueue(new Entry(seq++, dagRun, taskRun, priority, new FutureTask<>(start::get), true));
+    }
+
+    private Future<?> enqueue(Entry entry) {
+        queue.add(entry);
+        queued.put(entry.taskRun.id(), entry);
+        dispatch();
+        return entry.future;
+    }
+
+    /**
+     * Remove task run from queue if it's not started yet. Task run dispatched to executor
+     * but not started yet is removed too, its slot is released without run.
+     *
+     * @return true if task run has been removed, so runnable will never be executed
+     */
+    public synchronized boolean remove(TaskRun taskRun) {
+        Entry entry = queued.remove(taskRun.id());
+        if (entry == null) {
+            return false;
+        }
+        if (queue.remove(entry) && entry.async) {
+            queuedAsync--;
+        }
+        entry.future.cancel(false);
+        return true;
+    }
+
+    public synchronized TaskRunQueueStats stats() {
+        Map<String, Integer> queuedByOperation = new TreeMap<>();
+        long oldest = 0;
+        long now = System.currentTimeMillis();
+        for (Entry entry : queue) {
+            queuedByOperation.merge(entry.operation(), 1, Integer::sum);
+            oldest = Math.max(oldest, now - entry.enqueued);
+        }
+        return new TaskRunQueueStats(
+            slots,
+            limits,
+            queue.size(),
+            runningTotal,
+            runningAsync,
+            queuedByOperation,
+            new TreeMap<>(running),
+            dispatched,
+            dispatched == 0 ? 0 : waitTotalMillis / dispatched,
+            waitMaxMillis,
+            oldest
+        );
+    }
+
+    private void dispatch() {
+        Iterator<Entry> iterator = queue.iterator();
+        while ((runningTotal < slots || queuedAsync > 0) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.async && runningTotal >= slots) {
+                continue;
+            }
+            String operation = entry.operation();
+            String key = limitKey(operation);
+            int current = running.getOrDefault(key, 0);
+            if (limits.containsKey(key) && current >= limits.get(key)) {
+                continue;
+            }
+            iterator.remove();
+            running.put(key, current + 1);
+            if (entry.async) {
+                queuedAsync--;
+                runningAsync++;
+            } else {
+                runningTotal++;
+            }
+
+            long wait = System.currentTimeMillis() - entry.enqueued;
+            dispatched++;
+            waitTotalMillis += wait;
+            waitMaxMillis = Math.max(waitMaxMillis, wait);
+
+            executorService.execute(() -> run(entry, key));
+        }
+    }
+
+    private void run(Entry entry, String key) {
+        CompletionStage<?> stage = null;
+        try {
+            if (start(entry)) {
+                entry.future.run();
+                stage = entry.stage();
+            }
+        } finally {
+            if (stage == null) {
+                release(entry, key);
+            } else {
+                stage.whenComplete((result, e) -> release(entry, key));
+            }
+        }
+    }
+
+    /**
+     * @return false if entry has been removed after dispatch
+     */
+    private synchronized boolean start(Entry entry) {
+        return queued.remove(entry.taskRun.id(), entry);
+    }
+
+    private synchronized void release(Entry entry, String key) {
+        running.compute(key, (k, current) -> current == null || current <= 1 ? null : current - 1);
+        if (entry.async) {
+            runningAsync--;
+        } else {
+            runningTotal--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Find limit key for operation: exact id match wins, then longest matched prefix pattern.
+     * Operations without limit are accounted by own id.
+     */
+    private String limitKey(String operation) {
+        if (limits.containsKey(operation)) {
+            return operation;
+        }
+        String matched = null;
+        for (String key : limits.keySet()) {
+            if (key.endsWith("*") && operation.startsWith(key.substring(0, key.length() - 1))) {
+                if (matched == null || key.length() > matched.length()) {
+                    matched = key;
+                }
+            }
+        }
+        return matched != null ? matched : operation;
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        executorService.shutdownNow();
+    }
+
+    private static class Entry {
+        private final long seq;
+        private final DagRun dagRun;
+        private final TaskRun taskRun;
+        private final long priority;
+        private final FutureTask<CompletionStage<?>> future;
+        private final boolean async;
+        private final long enqueued;
+
+        private Entry(long seq, DagRun dagRun, TaskRun taskRun, long priority, FutureTask<CompletionStage<?>> future, boolean async) {
+            this.seq = seq;
+            this.dagRun = dagRun;
+            this.taskRun = taskRun;
+            this.priority = priority;
+            this.future = future;
+            this.async = async;
+            this.enqueued = System.currentTimeMillis();
+        }
+
+        private String operation() {
+            return taskRun.task().operation();
+        }
+
+        /**
+         * @return stage of started async operation, or null if limit should be released now
+         */
+        private CompletionStage<?> stage() {
+            if (!async || !future.isDone() || future.isCancelled()) {
+                return null;
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+public class TaskRunQueueStats {
+    private final int slots;
+    private final ImmutableMap<String, Integer> limits;
+    private final int queued;
+    private final int running;
+    // async operations hold operation limit, but not a slot
+    private final int runningAsync;
+    private final ImmutableMap<String, Integer> queuedByOperation;
+    private final ImmutableMap<String, Integer> runningByOperation;
+    private final long dispatched;
+    private final long waitAvgMillis;
+    private final long waitMaxMillis;
+    private final long waitOldestMillis;
+
+    public TaskRunQueueStats(
+        int slots,
+        Map<String, Integer> limits,
+        int queued,
+        int running,
+        int runningAsync,
+        Map<String, Integer> queuedByOperation,
+        Map<String, Integer> runningByOperation,
+        long dispatched,
+        long waitAvgMillis,
+        long waitMaxMillis,
+        long waitOldestMillis
+    ) {
+        this.slots = slots;
+        this.limits = ImmutableMap.copyOf(limits);
+        this.queued = queued;
+        this.running = running;
+        this.runningAsync = runningAsync;
+        this.queuedByOperation = ImmutableMap.copyOf(queuedByOperation);
+        this.runningByOperation = ImmutableMap.copyOf(runningByOperation);
+        this.dispatched = dispatched;
+        this.waitAvgMillis = waitAvgMillis;
+        this.waitMaxMillis = waitMaxMillis;
+        this.waitOldestMillis = waitOldestMillis;
+    }
+
+    public int slots() {
+        return slots;
+    }
+
+    public ImmutableMap<String, Integer> limits() {
+        return limits;
+    }
+
+    public int queued() {
+        return queued;
+    }
+
+    public int running() {
+        return running;
+    }
+
+    public int runningAsync() {
+        return runningAsync;
+    }
+
+    public ImmutableMap<String, Integer> queuedByOperation() {
+        return queuedByOperation;
+    }
+
+    public ImmutableMap<String, Integer> runningByOperation() {
+        return runningByOperation;
+    }
+
+    public long dispatched() {
+        return dispatched;
+    }
+
+    public long waitAvgMillis() {
+        return waitAvgMillis;
+    }
+
+    public long waitMaxMillis() {
+        return waitMaxMillis;
+    }
+
+    public long waitOldestMillis() {
+        return waitOldestMillis;
+    }
+}
@@ -3,7 +3,21 @@ package org.github.mitallast.taskflow.executor.command;
 import org.github.mitallast.taskflow.dag.TaskRun;
 
 public class RetryTaskRunCommand extends TaskRunCommand {
+    private final long delay;
+
     public RetryTaskRunCommand(TaskRun taskRun) {
+        this(taskRun, 0);
+    }
+
+    public RetryTaskRunCommand(TaskRun taskRun, long delay) {
         super(taskRun);
+        this.delay = delay;
+    }
+
+    /**
+     * @return delay before retry in milliseconds
+     */
+    public long delay() {
+        return delay;
     }
 }
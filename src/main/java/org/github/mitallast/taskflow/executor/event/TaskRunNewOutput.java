@@ -0,0 +1,24 @@
+package org.github.mitallast.taskflow.executor.event;
+
+/**
+ * Batch of output lines of task run
+ */
+public class TaskRunNewOutput extends DagRunEvent {
+    private final long taskRunId;
+    private final String output;
+    private final int lines;
+
+    public TaskRunNewOutput(long taskRunId, String output, int lines) {
+        this.taskRunId = taskRunId;
+        this.output = output;
+        this.lines = lines;
+    }
+
+    public long taskRunId() {
+        return taskRunId;
+    }
+
+    public int lines() {
+        return lines;
+    }
+}
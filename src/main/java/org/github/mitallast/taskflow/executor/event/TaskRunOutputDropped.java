@@ -0,0 +1,15 @@
+package org.github.mitallast.taskflow.executor.event;
+
+/**
+ * Sent to subscriber instead of output lines it could not receive in time,
+ * subscriber should reload task run log to recover.
+ */
+public class TaskRunOutputDropped extends DagRunEvent {
+    private final long taskRunId;
+    private final long lines;
+
+    public TaskRunOutputDropped(long taskRunId, long lines) {
+        this.taskRunId = taskRunId;
+        this.lines = lines;
+    }
+}
@@ -0,0 +1,63 @@
+package org.github.mitallast.taskflow.log;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte range of task run log.
+ */
+public class TaskLogChunk {
+    private final long offset;
+    private final byte[] data;
+    private final long size;
+    private final boolean complete;
+
+    public TaskLogChunk(long offset, byte[] data, long size, boolean complete) {
+        this.offset = offset;
+        this.data = data;
+        this.size = size;
+        this.complete = complete;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    /**
+     * Offset of next chunk
+     */
+    public long nextOffset() {
+        return offset + data.length;
+    }
+
+    /**
+     * Total size of log at the moment of read
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * True if log writer is closed, so log will not grow anymore
+     */
+    public boolean complete() {
+        return complete;
+    }
+
+    public String text() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskLogChunk{" +
+            "offset=" + offset +
+            ", length=" + data.length +
+            ", size=" + size +
+            ", complete=" + complete +
+            '}';
+    }
+}
@@ -0,0 +1,10 @@
+package org.github.mitallast.taskflow.log;
+
+import com.google.inject.AbstractModule;
+
+public class TaskLogModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(TaskLogService.class).asEagerSingleton();
+    }
+}
@@ -0,0 +1,132 @@
+package org.github.mitallast.taskflow.log;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores output of task runs in append-only log files on local disk, one file per task run.
+ * <p>
+ * Files are grouped in directories by 1000 task runs, to keep directory size bounded.
+ * Task run log is addressed by task run id.
+ */
+public class TaskLogService extends AbstractLifecycleComponent {
+
+    private final Path directory;
+    private final int chunkSize;
+    private final ConcurrentMap<Long, TaskLogWriter> writers;
+
+    @Inject
+    public TaskLogService(Config config) throws IOException {
+        super(config.getConfig("log"), TaskLogService.class);
+        this.directory = Paths.get(this.config.getString("directory")).toAbsolutePath();
+        this.chunkSize = (int) this.config.getBytes("chunk_size").longValue();
+        Preconditions.checkArgument(chunkSize > 0, "chunk_size should be positive");
+        this.writers = new ConcurrentHashMap<>();
+
+        Files.createDirectories(directory);
+        logger.info("log directory: {}", directory);
+    }
+
+    public Path path(long taskRunId) {
+        return directory.resolve(String.valueOf(taskRunId / 1000)).resolve(taskRunId + ".log");
+    }
+
+    /**
+     * Open writer of task run log, or return already opened one
+     */
+    public TaskLogWriter writer(long taskRunId) {
+        return writers.computeIfAbsent(taskRunId, id -> {
+            try {
+                Path path = path(id);
+                Files.createDirectories(path.getParent());
+                return new TaskLogWriter(path, chunkSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Flush and close writer of task run log, if opened
+     */
+    public void close(long taskRunId) {
+        TaskLogWriter writer = writers.remove(taskRunId);
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("error close task run {} log", taskRunId, e);
+            }
+        }
+    }
+
+    public boolean isOpen(long taskRunId) {
+        return writers.containsKey(taskRunId);
+    }
+
+    public long size(long taskRunId) throws IOException {
+        TaskLogWriter writer = writers.get(taskRunId);
+        if (writer != null) {
+            return writer.size();
+        }
+        Path path = path(taskRunId);
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    /**
+     * Read up to limit bytes of task run log starting at offset.
+     * Missing log is read as empty one.
+     */
+    public TaskLogChunk read(long taskRunId, long offset, int limit) throws IOException {
+        Preconditions.checkArgument(offset >= 0, "offset should not be negative");
+        Preconditions.checkArgument(limit >= 0, "limit should not be negative");
+
+        TaskLogWriter writer = writers.get(taskRunId);
+        if (writer != null && !writer.closed()) {
+            return writer.read(offset, limit);
+        }
+        Path path = path(taskRunId);
+        if (!Files.exists(path)) {
+            return new TaskLogChunk(0, new byte[0], 0, true);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = Math.min(offset, size);
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(limit, size - start));
+            while (data.hasRemaining()) {
+                if (channel.read(data, start + data.position()) < 0) {
+                    break;
+                }
+            }
+            return new TaskLogChunk(start, data.array(), size, true);
+        }
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        for (Long taskRunId : writers.keySet()) {
+            close(taskRunId);
+        }
+    }
+}
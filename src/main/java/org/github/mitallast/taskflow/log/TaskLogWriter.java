@@ -0,0 +1,119 @@
+package org.github.mitallast.taskflow.log;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only writer of task run log.
+ * <p>
+ * Output is collected in a bounded chunk buffer, which is appended to the log file when full,
+ * so heap usage does not depend on output size. Reads of open log see both flushed and buffered data.
+ */
+public class TaskLogWriter implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long flushed;
+    private boolean closed;
+
+    TaskLogWriter(Path path, int chunkSize) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocate(chunkSize);
+        this.flushed = channel.size();
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public void append(String text) throws IOException {
+        append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void append(byte[] data) throws IOException {
+        append(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Append bytes from position to limit of data, position is moved to limit.
+     */
+    public synchronized void append(ByteBuffer data) throws IOException {
+        Preconditions.checkState(!closed, "log writer is closed");
+        if (data.remaining() > buffer.remaining()) {
+            flush();
+        }
+        if (data.remaining() > buffer.capacity()) {
+            write(data);
+        } else {
+            buffer.put(data);
+        }
+    }
+
+    /**
+     * @return total size of log, including not flushed chunk
+     */
+    public synchronized long size() {
+        return flushed + buffer.position();
+    }
+
+    public synchronized boolean closed() {
+        return closed;
+    }
+
+    public synchronized void flush() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            flushed += channel.write(data);
+        }
+    }
+
+    synchronized TaskLogChunk read(long offset, int limit) throws IOException {
+        long size = size();
+        long start = Math.min(offset, size);
+        int length = (int) Math.min(limit, size - start);
+        byte[] data = new byte[length];
+        int pos = 0;
+        if (start < flushed) {
+            int fromFile = (int) Math.min(length, flushed - start);
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer target = ByteBuffer.wrap(data, 0, fromFile);
+                while (target.hasRemaining()) {
+                    if (reader.read(target, start + target.position()) < 0) {
+                        break;
+                    }
+                }
+            }
+            pos = fromFile;
+        }
+        if (pos < length) {
+            int bufferOffset = (int) (start + pos - flushed);
+            System.arraycopy(buffer.array(), bufferOffset, data, pos, length - pos);
+        }
+        return new TaskLogChunk(start, data, size, closed);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            flush();
+            channel.force(false);
+            channel.close();
+            closed = true;
+        }
+    }
+}
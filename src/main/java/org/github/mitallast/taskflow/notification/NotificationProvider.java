@@ -4,5 +4,10 @@ public interface NotificationProvider {
 
     String id();
 
-    void notify(Notification notification);
+    /**
+     * Send notification, called from notification worker only.
+     *
+     * @throws Exception if notification is not sent, send is retried
+     */
+    void notify(Notification notification) throws Exception;
 }
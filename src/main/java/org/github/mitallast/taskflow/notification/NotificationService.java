@@ -1,33 +1,142 @@
 package org.github.mitallast.taskflow.notification;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
-import org.github.mitallast.taskflow.common.component.AbstractComponent;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.github.mitallast.taskflow.common.Immutable.group;
 
-public class NotificationService extends AbstractComponent {
+/**
+ * Sends notifications asynchronously, so callers are not blocked by slow providers.
+ * <p>
+ * Notifications are queued and sent by dedicated worker. Notifications collected in window
+ * after the first one are sent as single digest. Failed send is retried with exponential backoff
+ * up to max attempts, then notification is dropped.
+ */
+public class NotificationService extends AbstractLifecycleComponent {
 
     private final ImmutableMap<String, NotificationProvider> providersMap;
+    private final BlockingQueue<Notification> queue;
+    private final long window;
+    private final int maxDigest;
+    private final int attempts;
+    private final long backoff;
+    private final long maxBackoff;
+    private final ExecutorService executorService;
 
     @Inject
     public NotificationService(Config config, Set<NotificationProvider> providers) {
-        super(config, NotificationService.class);
+        super(config.getConfig("notification"), NotificationService.class);
 
         providersMap = group(providers, NotificationProvider::id);
+        queue = new LinkedBlockingQueue<>(this.config.getInt("queue_size"));
+        window = this.config.getDuration("window", TimeUnit.MILLISECONDS);
+        maxDigest = this.config.getInt("max_digest");
+        attempts = this.config.getInt("retry.attempts");
+        backoff = this.config.getDuration("retry.backoff", TimeUnit.MILLISECONDS);
+        maxBackoff = this.config.getDuration("retry.max_backoff", TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(maxDigest > 0, "max_digest should be positive");
+        Preconditions.checkArgument(attempts > 0, "retry.attempts should be positive");
+
+        executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("notification")
+            .setDaemon(true)
+            .build());
     }
 
     public ImmutableCollection<NotificationProvider> providers() {
         return providersMap.values();
     }
 
+    /**
+     * Enqueue notification and return immediately. If queue is full, notification is dropped.
+     */
     public void notify(Notification notification) {
-        for (NotificationProvider notificationProvider : providersMap.values()) {
-            notificationProvider.notify(notification);
+        if (!queue.offer(notification)) {
+            logger.warn("notification queue is full, drop {}", notification.subject());
         }
     }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Notification> notifications = new ArrayList<>();
+                notifications.add(queue.take());
+                long deadline = System.currentTimeMillis() + window;
+                while (notifications.size() < maxDigest) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        break;
+                    }
+                    Notification notification = queue.poll(left, TimeUnit.MILLISECONDS);
+                    if (notification == null) {
+                        break;
+                    }
+                    notifications.add(notification);
+                }
+                send(digest(notifications));
+            }
+        } catch (InterruptedException e) {
+            logger.info("notification worker stopped, {} notifications not sent", queue.size());
+        }
+    }
+
+    private static Notification digest(List<Notification> notifications) {
+        if (notifications.size() == 1) {
+            return notifications.get(0);
+        }
+        StringBuilder subject = new StringBuilder()
+            .append(notifications.size()).append(" notifications: ")
+            .append(notifications.get(0).subject());
+        StringBuilder text = new StringBuilder();
+        for (Notification notification : notifications) {
+            text.append(notification.subject()).append("\r\n\r\n")
+                .append(notification.text()).append("\r\n\r\n");
+        }
+        return new Notification(subject.toString(), text.toString());
+    }
+
+    private void send(Notification notification) throws InterruptedException {
+        for (NotificationProvider provider : providersMap.values()) {
+            long delay = backoff;
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                try {
+                    provider.notify(notification);
+                    break;
+                } catch (Exception e) {
+                    if (attempt == attempts) {
+                        logger.error("error send {} by {}, drop after {} attempts", notification.subject(), provider.id(), attempt, e);
+                    } else {
+                        logger.warn("error send {} by {}, retry in {}ms", notification.subject(), provider.id(), delay, e);
+                        Thread.sleep(delay);
+                        delay = Math.min(delay * 2, maxBackoff);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+        executorService.execute(this::run);
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        executorService.shutdownNow();
+    }
 }
@@ -2,7 +2,7 @@ package org.github.mitallast.taskflow.notification;
 
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
-import org.github.mitallast.taskflow.common.component.AbstractComponent;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
@@ -10,12 +10,17 @@ import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Properties;
 
 import static org.github.mitallast.taskflow.common.Immutable.toMap;
 
-public class STMPEmailNotificationProvider extends AbstractComponent implements NotificationProvider {
+/**
+ * Sends notifications by SMTP. Connection is reused by subsequent sends,
+ * and reconnected if it's closed by server or failed.
+ */
+public class STMPEmailNotificationProvider extends AbstractLifecycleComponent implements NotificationProvider {
 
     private final Properties properties;
     private final Session session;
@@ -23,6 +28,9 @@ public class STMPEmailNotificationProvider extends AbstractComponent implements
     private final String sendFrom;
     private final String sendTo;
 
+    // accessed by notification worker only
+    private Transport transport;
+
     @Inject
     public STMPEmailNotificationProvider(Config config) {
         super(config, STMPEmailNotificationProvider.class);
@@ -47,19 +55,47 @@ public class STMPEmailNotificationProvider extends AbstractComponent implements
     }
 
     @Override
-    public void notify(Notification notification) {
+    public synchronized void notify(Notification notification) throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(sendFrom));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(sendTo));
+        message.setSubject(notification.subject());
+        message.setText(notification.text());
+
         try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(sendFrom));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(sendTo));
-            message.setSubject(notification.subject());
-            message.setText(notification.text());
-
-            Transport transport = session.getTransport();
-            transport.connect();
+            if (transport == null || !transport.isConnected()) {
+                disconnect();
+                transport = session.getTransport();
+                transport.connect();
+            }
             transport.sendMessage(message, message.getAllRecipients());
         } catch (MessagingException e) {
-            logger.warn("error send mail", e);
+            disconnect();
+            throw e;
         }
     }
+
+    private synchronized void disconnect() {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.warn("error close transport", e);
+            }
+            transport = null;
+        }
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        disconnect();
+    }
 }
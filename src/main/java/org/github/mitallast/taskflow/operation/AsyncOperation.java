@@ -0,0 +1,33 @@
+package org.github.mitallast.taskflow.operation;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Operation which does not hold a thread while it waits, like sensors.
+ * <p>
+ * Executor completes task run once returned stage is completed, and cancels
+ * its future on task run cancel, so implementation should stop waiting after that.
+ */
+public interface AsyncOperation extends Operation {
+
+    CompletionStage<OperationResult> runAsync(OperationCommand command, OperationContext context);
+
+    @Override
+    default OperationResult run(OperationCommand command, OperationContext context) throws IOException, InterruptedException {
+        CompletableFuture<OperationResult> future = runAsync(command, context).toCompletableFuture();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -1,22 +1,32 @@
 package org.github.mitallast.taskflow.operation;
 
+import org.github.mitallast.taskflow.timer.TimerService;
+
 import java.util.concurrent.ExecutorService;
-import java.util.function.Consumer;
 
 public class OperationContext {
     private final ExecutorService executionContext;
-    private final Consumer<String> outputListener;
+    private final TimerService timer;
+    private final OutputSink outputSink;
 
-    public OperationContext(ExecutorService executionContext, Consumer<String> outputListener) {
+    public OperationContext(ExecutorService executionContext, TimerService timer, OutputSink outputSink) {
         this.executionContext = executionContext;
-        this.outputListener = outputListener;
+        this.timer = timer;
+        this.outputSink = outputSink;
     }
 
     public ExecutorService executionContext() {
         return executionContext;
     }
 
-    public Consumer<String> outputListener() {
-        return outputListener;
+    /**
+     * Timer for deadlines and delayed actions of operations, should not be used for blocking calls.
+     */
+    public TimerService timer() {
+        return timer;
+    }
+
+    public OutputSink outputSink() {
+        return outputSink;
     }
 }
@@ -0,0 +1,65 @@
+package org.github.mitallast.taskflow.operation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks condition without holding a thread between checks.
+ * <p>
+ * Check is executed in operation execution context, delays are scheduled
+ * by operation timer.
+ */
+public final class OperationPoller {
+
+    private OperationPoller() {
+    }
+
+    /**
+     * @param check returns operation result if done, or null to check again after interval
+     * @return future completed with check result, or with failed result after timeout
+     */
+    public static CompletableFuture<OperationResult> poll(
+        OperationContext context,
+        long interval,
+        long timeout,
+        TimeUnit unit,
+        Callable<OperationResult> check
+    ) {
+        CompletableFuture<OperationResult> future = new CompletableFuture<>();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        context.executionContext().execute(() -> check(context, interval, unit, deadline, check, future));
+        return future;
+    }
+
+    private static void check(
+        OperationContext context,
+        long interval,
+        TimeUnit unit,
+        long deadline,
+        Callable<OperationResult> check,
+        CompletableFuture<OperationResult> future
+    ) {
+        if (future.isDone()) {
+            // canceled
+            return;
+        }
+        try {
+            OperationResult result = check.call();
+            if (result != null) {
+                future.complete(result);
+            } else if (System.nanoTime() - deadline >= 0) {
+                future.complete(new OperationResult(OperationStatus.FAILED, "Operation timed out"));
+            } else {
+                context.timer().schedule(
+                    () -> check(context, interval, unit, deadline, check, future),
+                    interval,
+                    unit,
+                    context.executionContext()
+                );
+            }
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.github.mitallast.taskflow.operation;
+
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps first {@code head} bytes and last {@code tail} bytes of output, so memory usage
+ * does not depend on output size. Skipped part is replaced by truncation marker.
+ */
+public class OutputCollector implements OutputSink {
+    private final byte[] head;
+    private final byte[] tail;
+    private int headSize;
+    // ring buffer position of next byte
+    private int tailPos;
+    private long total;
+
+    public OutputCollector(int head, int tail) {
+        Preconditions.checkArgument(head >= 0, "head should not be negative");
+        Preconditions.checkArgument(tail >= 0, "tail should not be negative");
+        this.head = new byte[head];
+        this.tail = new byte[tail];
+    }
+
+    public void append(byte[] data, int offset, int length) {
+        write(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Collect bytes from position to limit of output, position is moved to limit.
+     */
+    @Override
+    public synchronized void write(ByteBuffer output) {
+        int length = output.remaining();
+        total += length;
+        int toHead = Math.min(length, head.length - headSize);
+        output.get(head, headSize, toHead);
+        headSize += toHead;
+        length -= toHead;
+        if (length == 0 || tail.length == 0) {
+            output.position(output.limit());
+            return;
+        }
+        // only last tail.length bytes could be kept
+        if (length > tail.length) {
+            output.position(output.position() + length - tail.length);
+            length = tail.length;
+        }
+        int first = Math.min(length, tail.length - tailPos);
+        output.get(tail, tailPos, first);
+        output.get(tail, 0, length - first);
+        tailPos = (tailPos + length) % tail.length;
+    }
+
+    /**
+     * Total count of bytes passed to collector
+     */
+    public synchronized long size() {
+        return total;
+    }
+
+    public synchronized boolean truncated() {
+        return total > head.length + tail.length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(headSize + tail.length);
+        out.write(head, 0, headSize);
+        long tailSize = Math.min(total - headSize, tail.length);
+        if (truncated()) {
+            long skipped = total - headSize - tailSize;
+            byte[] marker = ("\n... " + skipped + " bytes truncated ...\n").getBytes(StandardCharsets.UTF_8);
+            out.write(marker, 0, marker.length);
+        }
+        if (tailSize == tail.length) {
+            // ring is full, oldest byte is at current position
+            out.write(tail, tailPos, tail.length - tailPos);
+            out.write(tail, 0, tailPos);
+        } else {
+            out.write(tail, 0, (int) tailSize);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
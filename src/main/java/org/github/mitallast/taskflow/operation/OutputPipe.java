@@ -0,0 +1,156 @@
+package org.github.mitallast.taskflow.operation;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pipes process output to sink by complete lines, without per line allocation.
+ * <p>
+ * Stream is read into reusable buffer, and slice of buffer up to the last line break is passed
+ * to sink, incomplete line is kept in buffer until the next read. Line longer than buffer is passed
+ * in parts, split at char boundary. Output in UTF-8 is read into direct buffer and passed as is,
+ * output in other charset is transcoded to UTF-8 through reusable heap buffers.
+ * <p>
+ * Not thread safe, pipe could be reused for sequential streams.
+ */
+public class OutputPipe {
+    private final ByteBuffer buffer;
+    private final CharsetDecoder decoder;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer encoded;
+
+    public OutputPipe(int bufferSize, Charset charset) {
+        Preconditions.checkArgument(bufferSize >= 4, "buffer size should be at least 4 bytes");
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            this.decoder = null;
+            this.encoder = null;
+            this.chars = null;
+            this.encoded = null;
+        } else {
+            // charset coders are fast only on array backed buffers
+            this.buffer = ByteBuffer.allocate(bufferSize);
+            this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.chars = CharBuffer.allocate((int) Math.ceil(bufferSize * decoder.maxCharsPerByte()));
+            this.encoded = ByteBuffer.allocate((int) Math.ceil(chars.capacity() * encoder.maxBytesPerChar()));
+        }
+    }
+
+    /**
+     * Read stream until end and pass its content to sink.
+     *
+     * @return count of bytes read from stream
+     */
+    public long pipe(InputStream input, OutputSink sink) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(input);
+        buffer.clear();
+        if (decoder != null) {
+            decoder.reset();
+            encoder.reset();
+        }
+        long total = 0;
+        int read;
+        while ((read = channel.read(buffer)) >= 0) {
+            total += read;
+            // buffered remainder does not contain line break, so only new bytes are scanned
+            int end = lastLineEnd(buffer.position() - read, buffer.position());
+            if (end == 0 && !buffer.hasRemaining()) {
+                end = charBoundary(buffer.position());
+            }
+            if (end > 0) {
+                emit(end, sink, false);
+            }
+        }
+        emit(buffer.position(), sink, true);
+        return total;
+    }
+
+    /**
+     * @return index after the last line break in range, or 0 if not found
+     */
+    private int lastLineEnd(int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Full buffer without line break is passed as is, except incomplete UTF-8 sequence at the end.
+     * Decoder of other charsets keeps incomplete sequence itself.
+     */
+    private int charBoundary(int end) {
+        if (decoder != null) {
+            return end;
+        }
+        for (int i = 1; i <= 3; i++) {
+            int b = buffer.get(end - i) & 0xFF;
+            if ((b & 0xC0) == 0xC0) {
+                // lead byte, sequence length is count of leading ones
+                int length = Integer.numberOfLeadingZeros(~b << 24);
+                return length > i ? end - i : end;
+            }
+            if ((b & 0x80) == 0) {
+                return end;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Pass bytes from start of buffer up to end to sink, and move unconsumed bytes to start of buffer.
+     */
+    private void emit(int end, OutputSink sink, boolean endOfInput) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(0).limit(end);
+        if (decoder == null) {
+            if (slice.hasRemaining()) {
+                sink.write(slice);
+            }
+            slice.position(end);
+        } else {
+            transcode(slice, sink, endOfInput);
+        }
+        int position = buffer.position();
+        buffer.position(slice.position()).limit(position);
+        buffer.compact();
+    }
+
+    private void transcode(ByteBuffer slice, OutputSink sink, boolean endOfInput) {
+        chars.clear();
+        encoded.clear();
+        // chars and encoded buffers are sized to fit decoded full buffer, so overflow is not possible
+        decoder.decode(slice, chars, endOfInput);
+        if (endOfInput) {
+            decoder.flush(chars);
+        }
+        chars.flip();
+        encoder.encode(chars, encoded, endOfInput);
+        if (endOfInput) {
+            encoder.flush(encoded);
+        }
+        encoded.flip();
+        if (encoded.hasRemaining()) {
+            sink.write(encoded);
+        }
+    }
+}
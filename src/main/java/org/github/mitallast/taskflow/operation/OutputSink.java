@@ -0,0 +1,21 @@
+package org.github.mitallast.taskflow.operation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receiver of operation output.
+ */
+@FunctionalInterface
+public interface OutputSink {
+
+    /**
+     * Output bytes in UTF-8, from position to limit of buffer. Buffer may be reused by caller
+     * after return, so sink should copy bytes it keeps.
+     */
+    void write(ByteBuffer output);
+
+    default void write(String output) {
+        write(ByteBuffer.wrap(output.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -3,25 +3,26 @@ package org.github.mitallast.taskflow.operation.shell;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigList;
+import io.netty.util.Timeout;
 import org.github.mitallast.taskflow.common.IOUtils;
 import org.github.mitallast.taskflow.common.component.AbstractComponent;
 import org.github.mitallast.taskflow.operation.*;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.attribute.FileAttribute;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class ShellOperation extends AbstractComponent implements Operation {
 
+    private final int bufferSize;
+
     @Inject
     public ShellOperation(Config config) {
         super(config.getConfig("operation.shell"), ShellOperation.class);
+        bufferSize = (int) this.config.getMemorySize("buffer_size").toBytes();
     }
 
     @Override
@@ -52,6 +53,8 @@ public class ShellOperation extends AbstractComponent implements Operation {
 
         long timeout = config.getDuration("timeout", TimeUnit.MILLISECONDS);
 
+        Charset charset = Charset.forName(config.getString("charset"));
+
         File scriptFile = null;
         try {
             scriptFile = File.createTempFile("taskflow", ".sh");
@@ -66,33 +69,35 @@ public class ShellOperation extends AbstractComponent implements Operation {
             builder.directory(directory);
 
             final Process process = builder.start();
-            final CompletableFuture<String> output = readStream(process.getInputStream(), context);
-
-            boolean exited = false;
-            InterruptedException interruptedException = null;
-            while (!exited) {
-                try {
-                    exited = process.waitFor(timeout, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    interruptedException = e;
-                    Thread.currentThread().interrupt();
-                }
-                if (!exited) {
-                    logger.warn("process does not exited, kill");
-                    process.destroyForcibly();
-                }
-            }
+            final CompletableFuture<Void> output = readStream(process.getInputStream(), charset, context);
+
+            // process is killed by timer on deadline, so wait is not bounded here
+            Timeout deadline = context.timer().schedule(() -> {
+                logger.warn("process timed out, kill");
+                process.destroyForcibly();
+            }, timeout, TimeUnit.MILLISECONDS);
 
-            if (interruptedException != null) {
-                throw interruptedException;
+            int exitValue;
+            try {
+                exitValue = process.waitFor();
+            } catch (InterruptedException e) {
+                logger.warn("interrupted, kill process");
+                process.destroyForcibly();
+                throw e;
+            } finally {
+                deadline.cancel();
             }
 
-            int exitValue = process.exitValue();
             logger.info("exit code: {}", exitValue);
+            // wait until output is passed to listener
+            output.get();
 
+            if (deadline.isExpired()) {
+                return new OperationResult(OperationStatus.FAILED, "timed out after " + timeout + "ms, exit code: " + exitValue);
+            }
             return new OperationResult(
                 exitValue == 0 ? OperationStatus.SUCCESS : OperationStatus.FAILED,
-                output.get()
+                "exit code: " + exitValue
             );
         } catch (IOException | ExecutionException e) {
             logger.info("operation failed", e);
@@ -107,22 +112,16 @@ public class ShellOperation extends AbstractComponent implements Operation {
         }
     }
 
-    private CompletableFuture<String> readStream(InputStream inputStream, OperationContext context) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                StringBuilder output = new StringBuilder();
-                new BufferedReader(new InputStreamReader(inputStream))
-                    .lines()
-                    .forEach(string -> {
-                        logger.info(string);
-                        String line = string + '\n';
-                        output.append(line);
-                        context.outputListener().accept(line);
-                    });
-                return output.toString();
+    /**
+     * Output is not accumulated in memory, it's passed to the output sink which appends it to task run log.
+     */
+    private CompletableFuture<Void> readStream(InputStream inputStream, Charset charset, OperationContext context) {
+        return CompletableFuture.runAsync(() -> {
+            try (InputStream input = inputStream) {
+                long size = new OutputPipe(bufferSize, charset).pipe(input, context.outputSink());
+                logger.info("output: {} bytes", size);
             } catch (Exception e) {
                 logger.warn("unexpected exception", e);
-                return "";
             }
         }, context.executionContext());
     }
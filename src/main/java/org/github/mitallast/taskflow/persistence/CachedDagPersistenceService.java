@@ -0,0 +1,140 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import org.github.mitallast.taskflow.common.component.AbstractComponent;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.DagPersistenceService;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache in front of {@link DefaultDagPersistenceService}.
+ * <p>
+ * Dag version is never changed after insert, so dags are cached by id until evicted by weight,
+ * which is count of tasks. Mapping of token to latest version is invalidated on create and update
+ * of dag, and expires to catch up updates made by other instances.
+ */
+public class CachedDagPersistenceService extends AbstractComponent implements DagPersistenceService {
+
+    private final DefaultDagPersistenceService persistence;
+
+    private final Cache<Long, Dag> dags;
+    private final Cache<String, Long> latest;
+
+    @Inject
+    public CachedDagPersistenceService(Config config, DefaultDagPersistenceService persistence) {
+        super(config.getConfig("persistence.dag_cache"), DagPersistenceService.class);
+        this.persistence = persistence;
+
+        dags = CacheBuilder.newBuilder()
+            .maximumWeight(this.config.getLong("max_tasks"))
+            .<Long, Dag>weigher((id, dag) -> dag.tasks().size() + 1)
+            .recordStats()
+            .build();
+
+        latest = CacheBuilder.newBuilder()
+            .maximumSize(this.config.getLong("max_tokens"))
+            .expireAfterWrite(this.config.getDuration("token_expire").toMillis(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    @Override
+    public Dag createDag(Dag dag) {
+        return cacheLatest(persistence.createDag(dag));
+    }
+
+    @Override
+    public Dag updateDag(Dag dag) {
+        latest.invalidate(dag.token());
+        return cacheLatest(persistence.updateDag(dag));
+    }
+
+    @Override
+    public ImmutableList<Dag> findLatestDags() {
+        ImmutableList<Dag> found = persistence.findLatestDags();
+        found.forEach(this::cacheLatest);
+        return found;
+    }
+
+    @Override
+    public Optional<Dag> findDagById(long id) {
+        Dag dag = dags.getIfPresent(id);
+        if (dag != null) {
+            return Optional.of(dag);
+        }
+        Optional<Dag> found = persistence.findDagById(id);
+        found.ifPresent(this::cache);
+        return found;
+    }
+
+    @Override
+    public ImmutableList<Dag> findDagByIds(Collection<Long> ids) {
+        // callers pass dag id of each dag run, so ids are usually repeated
+        ImmutableSet<Long> unique = ImmutableSet.copyOf(ids);
+        Map<Long, Dag> present = dags.getAllPresent(unique);
+        if (present.size() == unique.size()) {
+            return sorted(present.values());
+        }
+        Set<Long> missing = new HashSet<>(unique);
+        missing.removeAll(present.keySet());
+
+        List<Dag> result = new ArrayList<>(present.values());
+        for (Dag dag : persistence.findDagByIds(missing)) {
+            cache(dag);
+            result.add(dag);
+        }
+        return sorted(result);
+    }
+
+    @Override
+    public Optional<Dag> findDagByToken(String token) {
+        Long id = latest.getIfPresent(token);
+        if (id != null) {
+            Optional<Dag> dag = findDagById(id);
+            if (dag.isPresent()) {
+                return dag;
+            }
+        }
+        Optional<Dag> found = persistence.findDagByToken(token);
+        found.ifPresent(this::cacheLatest);
+        return found;
+    }
+
+    public DagCacheStats stats() {
+        CacheStats dagStats = dags.stats();
+        CacheStats latestStats = latest.stats();
+        return new DagCacheStats(
+            dags.size(),
+            dagStats.hitCount(),
+            dagStats.missCount(),
+            dagStats.evictionCount(),
+            latest.size(),
+            latestStats.hitCount(),
+            latestStats.missCount()
+        );
+    }
+
+    private Dag cache(Dag dag) {
+        dags.put(dag.id(), dag);
+        return dag;
+    }
+
+    private Dag cacheLatest(Dag dag) {
+        latest.put(dag.token(), dag.id());
+        return cache(dag);
+    }
+
+    private static ImmutableList<Dag> sorted(Collection<Dag> dags) {
+        List<Dag> list = new ArrayList<>(dags);
+        list.sort(Comparator.comparingLong(Dag::id));
+        return ImmutableList.copyOf(list);
+    }
+}
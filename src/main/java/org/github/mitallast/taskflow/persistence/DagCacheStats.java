@@ -0,0 +1,49 @@
+package org.github.mitallast.taskflow.persistence;
+
+public class DagCacheStats {
+    private final long size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long tokens;
+    private final long tokenHits;
+    private final long tokenMisses;
+
+    public DagCacheStats(long size, long hits, long misses, long evictions, long tokens, long tokenHits, long tokenMisses) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.tokens = tokens;
+        this.tokenHits = tokenHits;
+        this.tokenMisses = tokenMisses;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long tokens() {
+        return tokens;
+    }
+
+    public long tokenHits() {
+        return tokenHits;
+    }
+
+    public long tokenMisses() {
+        return tokenMisses;
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
@@ -13,10 +14,12 @@ import org.github.mitallast.taskflow.common.component.AbstractComponent;
 import org.github.mitallast.taskflow.common.json.JsonService;
 import org.github.mitallast.taskflow.dag.Dag;
 import org.github.mitallast.taskflow.dag.DagPersistenceService;
+import org.github.mitallast.taskflow.dag.RetryPolicy;
 import org.github.mitallast.taskflow.dag.Task;
 import org.github.mitallast.taskflow.operation.OperationCommand;
 import org.github.mitallast.taskflow.operation.OperationEnvironment;
 import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep10;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
 
@@ -29,6 +32,9 @@ import static org.jooq.impl.DSL.val;
 
 public class DefaultDagPersistenceService extends AbstractComponent implements DagPersistenceService {
 
+    // max rows per multi-row insert, keeps bind values count under driver limit
+    private static final int BATCH_SIZE = 1000;
+
     private final PersistenceService persistence;
     private final JsonService jsonService;
 
@@ -55,25 +61,32 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
         return insertDag(dag, dag.version() + 1);
     }
 
+    /**
+     * Schedule of dag is created disabled once per token
+     */
+    void insertSchedule(DSLContext context, Dag dag) {
+        context
+            .insertInto(
+                table.dag_schedule,
+                field.token,
+                field.enabled,
+                field.cron_expression
+            )
+            .values(
+                dag.token(),
+                false,
+                null
+            )
+            .onConflictDoNothing()
+            .execute();
+    }
+
     private Dag insertDag(Dag dag, int version) {
         try (DSLContext tr = persistence.context()) {
             return tr.transactionResult(conf -> {
                 logger.info("insert dag {} {}", dag.token(), version);
 
-                DSL.using(conf)
-                    .insertInto(
-                        table.dag_schedule,
-                        field.token,
-                        field.enabled,
-                        field.cron_expression
-                    )
-                    .values(
-                        dag.token(),
-                        false,
-                        null
-                    )
-                    .onConflictDoNothing()
-                    .execute();
+                insertSchedule(DSL.using(conf), dag);
 
                 int updated = DSL.using(conf)
                     .update(table.dag)
@@ -82,7 +95,8 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
                     .execute();
                 logger.info("updated {} rows", updated);
 
-                long dagId = DSL.using(conf)
+                long dagId = Sequences.nextval(DSL.using(conf), sequence.dag_seq, 1).get(0);
+                DSL.using(conf)
                     .insertInto(
                         table.dag,
                         field.id,
@@ -91,22 +105,22 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
                         field.token
                     )
                     .values(
-                        sequence.dag_seq.nextval(),
+                        val(dagId),
                         val(version),
                         val(true),
                         val(dag.token())
                     )
-                    .returning(field.id)
-                    .fetchOptional()
-                    .orElseThrow(IllegalStateException::new)
-                    .get(field.id);
-
-                logger.info("dag id={} token={}", dagId, dag.token());
+                    .execute();
 
+                ImmutableList<Long> taskIds = Sequences.nextval(DSL.using(conf), sequence.task_seq, dag.tasks().size());
                 ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+                for (int i = 0; i < taskIds.size(); i++) {
+                    Task task = dag.tasks().get(i);
+                    tasks.add(new Task(taskIds.get(i), version, task.token(), task.depends(), task.retry(), task.retryPolicy(), task.operation(), task.command()));
+                }
 
-                for (Task task : dag.tasks()) {
-                    long taskId = DSL.using(conf)
+                for (List<Task> batch : Lists.partition(tasks.build(), BATCH_SIZE)) {
+                    InsertValuesStep10<Record, Long, Integer, String, Long, String, Integer, String, String, String, String> insert = DSL.using(conf)
                         .insertInto(
                             table.task,
                             field.id,
@@ -115,30 +129,29 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
                             field.dag_id,
                             field.depends,
                             field.retry,
+                            field.retry_policy,
                             field.operation,
                             field.operation_config,
-                            field.operation_environment)
-                        .values(
-                            sequence.task_seq.nextval(),
-                            val(version),
-                            val(task.token()),
-                            val(dagId),
-                            val(serialize(task.depends())),
-                            val(task.retry()),
-                            val(task.operation()),
-                            val(serialize(task.command().config())),
-                            val(serialize(task.command().environment().map()))
-                        )
-                        .returning(field.id)
-                        .fetchOptional()
-                        .orElseThrow(IllegalStateException::new)
-                        .get(field.id);
-
-                    logger.info("task id={} token={}", taskId, task.token());
-
-                    tasks.add(new Task(taskId, version, task.token(), task.depends(), task.retry(), task.operation(), task.command()));
+                            field.operation_environment);
+                    for (Task task : batch) {
+                        insert = insert.values(
+                            task.id(),
+                            version,
+                            task.token(),
+                            dagId,
+                            serialize(task.depends()),
+                            task.retry(),
+                            serialize(task.retryPolicy()),
+                            task.operation(),
+                            serialize(task.command().config()),
+                            serialize(task.command().environment().map())
+                        );
+                    }
+                    insert.execute();
                 }
 
+                logger.info("dag id={} token={} tasks={}", dagId, dag.token(), taskIds);
+
                 return new Dag(dagId, version, dag.token(), tasks.build());
             });
         }
@@ -205,6 +218,7 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
 
             ImmutableList.Builder<Dag> dags = ImmutableList.builder();
             context.selectFrom(table.dag)
+                .where(field.id.in(ids))
                 .orderBy(field.id.asc())
                 .fetch()
                 .forEach(record -> dags.add(dag(record, tasks)));
@@ -251,6 +265,7 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
             record.get(field.token),
             deserializeTokens(record.get(field.depends)),
             record.get(field.retry),
+            deserializeRetryPolicy(record.get(field.retry_policy)),
             record.get(field.operation),
             new OperationCommand(
                 deserializeConfig(record.get(field.operation_config)),
@@ -269,6 +284,17 @@ public class DefaultDagPersistenceService extends AbstractComponent implements D
         return jsonService.deserialize(data, type);
     }
 
+    private String serialize(RetryPolicy retryPolicy) throws IOException {
+        return jsonService.serialize(retryPolicy);
+    }
+
+    /**
+     * Tasks created before retry policies have no policy stored
+     */
+    private RetryPolicy deserializeRetryPolicy(String data) {
+        return data == null ? RetryPolicy.IMMEDIATE : jsonService.deserialize(data, RetryPolicy.class);
+    }
+
     private String serialize(Config config) {
         return config.root().render(ConfigRenderOptions.concise());
     }
@@ -3,6 +3,8 @@ package org.github.mitallast.taskflow.persistence;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import org.github.mitallast.taskflow.common.component.AbstractComponent;
@@ -16,10 +18,16 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep5;
 import org.jooq.Record;
+import org.jooq.Select;
+import org.jooq.SelectSeekStep1;
 import org.jooq.impl.DSL;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,6 +37,25 @@ import static org.jooq.impl.DSL.val;
 
 public class DefaultDagRunPersistenceService extends AbstractComponent implements DagRunPersistenceService {
 
+    // max rows per multi-row insert, keeps bind values count under driver limit
+    private static final int BATCH_SIZE = 1000;
+
+    private static final ImmutableList<Field<?>> taskRunFieldsWithoutOutput = ImmutableList.of(
+        field.id,
+        field.task_id,
+        field.dag_run_id,
+        field.created_date,
+        field.start_date,
+        field.finish_date,
+        field.status,
+        field.operation_status
+    );
+
+    private static final ImmutableList<Field<?>> taskRunFields = ImmutableList.<Field<?>>builder()
+        .addAll(taskRunFieldsWithoutOutput)
+        .add(field.operation_output)
+        .build();
+
     private final PersistenceService persistence;
     private final DagPersistenceService dagPersistence;
 
@@ -48,20 +75,8 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
                 DateTime createdDate = DateTime.now();
                 Timestamp created = new Timestamp(createdDate.getMillis());
 
+                long dagRunId = Sequences.nextval(DSL.using(conf), sequence.dag_run_seq, 1).get(0);
                 DSL.using(conf)
-                    .insertInto(
-                        table.dag_schedule,
-                        field.token,
-                        field.enabled,
-                        field.cron_expression
-                    )
-                    .values(
-                        dag.token(),
-                        false,
-                        null
-                    );
-
-                long dagRunId = DSL.using(conf)
                     .insertInto(
                         table.dag_run,
                         field.id,
@@ -70,22 +85,32 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
                         field.status
                     )
                     .values(
-                        sequence.dag_run_seq.nextval(),
+                        val(dagRunId),
                         val(dag.id()),
                         val(created),
                         val(DagRunStatus.PENDING.name())
                     )
-                    .returning(field.id)
-                    .fetchOptional()
-                    .orElseThrow(IllegalStateException::new)
-                    .get(field.id);
+                    .execute();
 
                 logger.info("dag run id={} token={} version={}", dagRunId, dag.token(), dag.version());
 
+                ImmutableList<Long> taskRunIds = Sequences.nextval(DSL.using(conf), sequence.task_run_seq, dag.tasks().size());
                 ImmutableList.Builder<TaskRun> tasks = ImmutableList.builder();
+                for (int i = 0; i < taskRunIds.size(); i++) {
+                    tasks.add(new TaskRun(
+                        taskRunIds.get(i),
+                        dag.tasks().get(i),
+                        createdDate,
+                        null,
+                        null,
+                        TaskRunStatus.PENDING,
+                        null
+                    ));
+                }
+                ImmutableList<TaskRun> taskRuns = tasks.build();
 
-                for (Task task : dag.tasks()) {
-                    long taskRunId = DSL.using(conf)
+                for (List<TaskRun> batch : Lists.partition(taskRuns, BATCH_SIZE)) {
+                    InsertValuesStep5<Record, Long, Long, Long, Timestamp, String> insert = DSL.using(conf)
                         .insertInto(
                             table.task_run,
                             field.id,
@@ -93,28 +118,17 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
                             field.dag_run_id,
                             field.created_date,
                             field.status
-                        )
-                        .values(
-                            sequence.task_run_seq.nextval(),
-                            val(task.id()),
-                            val(dagRunId),
-                            val(created),
-                            val(TaskRunStatus.PENDING.name())
-                        )
-                        .returning(field.id)
-                        .fetchOptional()
-                        .orElseThrow(IllegalStateException::new)
-                        .get(field.id);
-
-                    tasks.add(new TaskRun(
-                        taskRunId,
-                        task,
-                        createdDate,
-                        null,
-                        null,
-                        TaskRunStatus.PENDING,
-                        null
-                    ));
+                        );
+                    for (TaskRun taskRun : batch) {
+                        insert = insert.values(
+                            taskRun.id(),
+                            taskRun.task().id(),
+                            dagRunId,
+                            created,
+                            TaskRunStatus.PENDING.name()
+                        );
+                    }
+                    insert.execute();
                 }
 
                 return new DagRun(
@@ -124,30 +138,48 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
                     null,
                     null,
                     DagRunStatus.PENDING,
-                    tasks.build()
+                    taskRuns
                 );
             });
         }
     }
 
     @Override
-    public ImmutableList<DagRun> findDagRuns() {
-        return findByCondition();
+    public ImmutableList<DagRun> findDagRuns(DagRunQuery query) {
+        List<Condition> conditions = new ArrayList<>();
+        if (query.before() != null) {
+            conditions.add(field.id.lt(query.before()));
+        }
+        if (query.status() != null) {
+            conditions.add(field.status.eq(query.status().name()));
+        }
+        if (query.token() != null) {
+            conditions.add(field.dag_id.in(DSL.select(field.id).from(table.dag).where(field.token.eq(query.token()))));
+        }
+        if (query.from() != null) {
+            conditions.add(field.created_date.ge(new Timestamp(query.from().getMillis())));
+        }
+        if (query.to() != null) {
+            conditions.add(field.created_date.lt(new Timestamp(query.to().getMillis())));
+        }
+        return findByCondition(query.limit(), query.output(), conditions.toArray(new Condition[conditions.size()]));
     }
 
     @Override
     public ImmutableList<DagRun> findPendingDagRuns() {
-        return findByCondition(
-            field.status.in(DagRunStatus.PENDING.name(), DagRunStatus.RUNNING.name())
-        );
+        return findByCondition(pending());
     }
 
     @Override
     public ImmutableList<DagRun> findPendingDagRunsByDag(long dagId) {
-        return findByCondition(
-            field.status.in(DagRunStatus.PENDING.name(), DagRunStatus.RUNNING.name()),
-            field.dag_id.eq(dagId)
-        );
+        return findByCondition(pending(), field.dag_id.eq(dagId));
+    }
+
+    /**
+     * Same condition as partial index dag_run_active, see {@link SchemaService}
+     */
+    static Condition pending() {
+        return field.status.in(DagRunStatus.PENDING.name(), DagRunStatus.RUNNING.name());
     }
 
     @Override
@@ -155,24 +187,86 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
         return headOpt(findByCondition(field.id.eq(id)));
     }
 
-    private ImmutableList<DagRun> findByCondition(Condition... conditions) {
+    @Override
+    public ImmutableMap<String, Long> findTaskDurations(String dagToken, int history) {
         try (DSLContext context = persistence.context()) {
-            List<DagRun> dagRunList = context.selectFrom(table.dag_run)
-                .where(conditions)
+            // task runs are selected by dag run index, which is much smaller than task run table
+            List<Long> dagRunIds = context.select(field.id)
+                .from(table.dag_run)
+                .where(field.dag_id.in(context.select(field.id).from(table.dag).where(field.token.eq(dagToken))))
                 .orderBy(field.id.desc())
+                .limit(history)
+                .fetch(field.id);
+            if (dagRunIds.isEmpty()) {
+                return ImmutableMap.of();
+            }
+
+            // task id => total duration and count of task runs
+            Map<Long, long[]> durations = new HashMap<>();
+            context.select(field.task_id, field.start_date, field.finish_date)
+                .from(table.task_run)
+                .where(field.dag_run_id.in(dagRunIds))
+                .and(field.status.eq(TaskRunStatus.SUCCESS.name()))
+                .and(field.start_date.isNotNull())
+                .and(field.finish_date.isNotNull())
+                .fetch()
+                .forEach(record -> {
+                    long duration = record.get(field.finish_date).getTime() - record.get(field.start_date).getTime();
+                    long[] total = durations.computeIfAbsent(record.get(field.task_id), id -> new long[2]);
+                    total[0] += Math.max(0, duration);
+                    total[1]++;
+                });
+            if (durations.isEmpty()) {
+                return ImmutableMap.of();
+            }
+
+            // task of each dag version has own id, durations are merged by token
+            Map<String, long[]> byToken = new HashMap<>();
+            context.select(field.id, field.token)
+                .from(table.task)
+                .where(field.id.in(durations.keySet()))
+                .fetch()
+                .forEach(record -> {
+                    long[] total = durations.get(record.get(field.id));
+                    long[] merged = byToken.computeIfAbsent(record.get(field.token), token -> new long[2]);
+                    merged[0] += total[0];
+                    merged[1] += total[1];
+                });
+
+            ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+            byToken.forEach((token, total) -> builder.put(token, total[0] / total[1]));
+            return builder.build();
+        }
+    }
+
+    private ImmutableList<DagRun> findByCondition(Condition... conditions) {
+        return findByCondition(0, true, conditions);
+    }
+
+    /**
+     * @param limit  max count of dag runs, or 0 for unlimited
+     * @param output load operation output of task runs, otherwise it's left empty
+     */
+    private ImmutableList<DagRun> findByCondition(int limit, boolean output, Condition... conditions) {
+        try (DSLContext context = persistence.context()) {
+            List<DagRun> dagRunList = select(context, limit, conditions)
                 .fetch()
                 .map(record -> dagRun(record, new Dag(record.get(field.dag_id)), ImmutableList.of()));
+            if (dagRunList.isEmpty()) {
+                return ImmutableList.of();
+            }
 
             List<Dag> dags = dagPersistence.findDagByIds(map(map(dagRunList, DagRun::dag), Dag::id));
             Map<Long, Dag> dagMap = group(dags, Dag::id);
             Map<Long, Task> taskMap = group(flatMap(dags, Dag::tasks), Task::id);
 
             ImmutableListMultimap.Builder<Long, TaskRun> taskRunBuilder = ImmutableListMultimap.builder();
-            context.selectFrom(table.task_run)
+            context.select(output ? taskRunFields : taskRunFieldsWithoutOutput)
+                .from(table.task_run)
                 .where(field.dag_run_id.in(map(dagRunList, DagRun::id)))
                 .orderBy(field.start_date.asc().nullsLast(), field.id.desc())
                 .fetch()
-                .forEach(record -> taskRunBuilder.put(record.get(field.dag_run_id), taskRun(record, taskMap.get(record.get(field.task_id)))));
+                .forEach(record -> taskRunBuilder.put(record.get(field.dag_run_id), taskRun(record, taskMap.get(record.get(field.task_id)), output)));
             ImmutableListMultimap<Long, TaskRun> taskRunMap = taskRunBuilder.build();
 
             ImmutableList.Builder<DagRun> dagRuns = ImmutableList.builder();
@@ -190,6 +284,16 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
         }
     }
 
+    /**
+     * @param limit max count of dag runs, or 0 for unlimited
+     */
+    static Select<Record> select(DSLContext context, int limit, Condition... conditions) {
+        SelectSeekStep1<Record, Long> select = context.selectFrom(table.dag_run)
+            .where(conditions)
+            .orderBy(field.id.desc());
+        return limit > 0 ? select.limit(limit) : select;
+    }
+
     @Override
     public boolean startDagRun(long id) {
         try (DSLContext tr = persistence.context()) {
@@ -377,7 +481,7 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
         }
     }
 
-    private TaskRun taskRun(Record record, Task task) {
+    private TaskRun taskRun(Record record, Task task, boolean output) {
         return new TaskRun(
             record.get(field.id),
             task,
@@ -385,7 +489,7 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
             date(record.get(field.start_date)),
             date(record.get(field.finish_date)),
             TaskRunStatus.valueOf(record.get(field.status)),
-            operationResult(record)
+            operationResult(record, output)
         );
     }
 
@@ -401,14 +505,14 @@ public class DefaultDagRunPersistenceService extends AbstractComponent implement
         );
     }
 
-    private OperationResult operationResult(Record record) {
+    private OperationResult operationResult(Record record, boolean output) {
         String status = record.get(field.operation_status);
         if (status == null) {
             return null;
         } else {
             return new OperationResult(
                 OperationStatus.valueOf(status),
-                record.get(field.operation_output)
+                output ? record.get(field.operation_output) : ""
             );
         }
     }
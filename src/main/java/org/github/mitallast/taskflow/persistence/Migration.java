@@ -0,0 +1,60 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.base.Preconditions;
+import org.jooq.DSLContext;
+
+import java.util.function.Consumer;
+
+/**
+ * Versioned step of schema migration. Steps are applied once, in order of version,
+ * and applied version is recorded in {@code schema_version} table.
+ * <p>
+ * Blocking step is applied in transaction before service is started. Online step is applied
+ * without transaction in background after start, so it should not be required for correctness,
+ * like performance index created concurrently.
+ */
+final class Migration {
+    private final int version;
+    private final String description;
+    private final boolean online;
+    private final Consumer<DSLContext> step;
+
+    private Migration(int version, String description, boolean online, Consumer<DSLContext> step) {
+        Preconditions.checkArgument(version > 0, "version should be positive");
+        Preconditions.checkNotNull(description);
+        Preconditions.checkNotNull(step);
+        this.version = version;
+        this.description = description;
+        this.online = online;
+        this.step = step;
+    }
+
+    static Migration blocking(int version, String description, Consumer<DSLContext> step) {
+        return new Migration(version, description, false, step);
+    }
+
+    static Migration online(int version, String description, Consumer<DSLContext> step) {
+        return new Migration(version, description, true, step);
+    }
+
+    int version() {
+        return version;
+    }
+
+    String description() {
+        return description;
+    }
+
+    boolean online() {
+        return online;
+    }
+
+    void migrate(DSLContext context) {
+        step.accept(context);
+    }
+
+    @Override
+    public String toString() {
+        return version + " " + description + (online ? " (online)" : "");
+    }
+}
@@ -10,7 +10,9 @@ public class PersistenceModule extends AbstractModule {
     protected void configure() {
         bind(PersistenceService.class).asEagerSingleton();
         bind(SchemaService.class).asEagerSingleton();
-        bind(DagPersistenceService.class).to(DefaultDagPersistenceService.class).asEagerSingleton();
+        bind(DefaultDagPersistenceService.class).asEagerSingleton();
+        bind(CachedDagPersistenceService.class).asEagerSingleton();
+        bind(DagPersistenceService.class).to(CachedDagPersistenceService.class).asEagerSingleton();
         bind(DagRunPersistenceService.class).to(DefaultDagRunPersistenceService.class).asEagerSingleton();
         bind(DagSchedulePersistenceService.class).to(DefaultDagSchedulePersistenceService.class).asEagerSingleton();
     }
@@ -27,6 +27,7 @@ interface Schema {
         Table<Record> dag_run = table("dag_run");
         Table<Record> task_run = table("task_run");
         Table<Record> dag_schedule = table("dag_schedule");
+        Table<Record> schema_version = table("schema_version");
     }
 
     interface field {
@@ -44,10 +45,12 @@ interface Schema {
         Field<Timestamp> created_date = field("created_date", SQLDataType.TIMESTAMP.nullable(false));
         Field<Timestamp> start_date = field("start_date", SQLDataType.TIMESTAMP.nullable(true));
         Field<Timestamp> finish_date = field("finish_date", SQLDataType.TIMESTAMP.nullable(true));
+        Field<Timestamp> applied_date = field("applied_date", SQLDataType.TIMESTAMP.nullable(false));
 
         Field<String> token = field("token", SQLDataType.VARCHAR(256).nullable(false));
         Field<String> operation = field("operation", SQLDataType.VARCHAR(256).nullable(false));
         Field<String> cron_expression = field("cron_expression", SQLDataType.VARCHAR(32).nullable(true));
+        Field<String> description = field("description", SQLDataType.VARCHAR(256).nullable(false));
 
         Field<String> status = field("status", SQLDataType.VARCHAR(32).nullable(false));
         Field<String> operation_status = field("operation_status", SQLDataType.VARCHAR(32));
@@ -55,6 +58,7 @@ interface Schema {
         Field<String> depends = field("depends", SQLDataType.CLOB.nullable(false));
         Field<String> operation_config = field("operation_config", SQLDataType.CLOB.nullable(false));
         Field<String> operation_environment = field("operation_environment", SQLDataType.CLOB.nullable(false));
+        Field<String> retry_policy = field("retry_policy", SQLDataType.CLOB.nullable(true));
 
         Field<String> operation_output = field("operation_output", SQLDataType.CLOB);
     }
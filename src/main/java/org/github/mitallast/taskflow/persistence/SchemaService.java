@@ -1,28 +1,70 @@
 package org.github.mitallast.taskflow.persistence;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
-import org.github.mitallast.taskflow.common.component.AbstractComponent;
-import org.jooq.DSLContext;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
+import org.github.mitallast.taskflow.dag.DagRunStatus;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static org.jooq.impl.DSL.constraint;
 
-public class SchemaService extends AbstractComponent {
+/**
+ * Applies versioned schema migrations.
+ * <p>
+ * Blocking migrations are applied on construction, since other services expect schema to exist.
+ * Online migrations, like indexes created concurrently on large tables, are applied in background
+ * after start, so startup is not locked out by long running DDL.
+ */
+public class SchemaService extends AbstractLifecycleComponent {
 
     private final PersistenceService persistence;
+    private final ImmutableList<Migration> migrations;
+    private final ExecutorService executorService;
 
     @Inject
     public SchemaService(Config config, PersistenceService persistence) {
         super(config.getConfig("persistence"), SchemaService.class);
         this.persistence = persistence;
 
+        migrations = ImmutableList.of(
+            Migration.blocking(1, "create tables", this::createTables),
+            Migration.online(2, "index task run by dag run", this::createTaskRunIndex),
+            Migration.online(3, "index active dag runs", this::createDagRunIndex),
+            Migration.blocking(4, "add task retry policy", this::addTaskRetryPolicy)
+        );
+        for (int i = 1; i < migrations.size(); i++) {
+            Preconditions.checkState(migrations.get(i - 1).version() < migrations.get(i).version(), "migrations are not ordered by version");
+        }
+
+        executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("schema-migration")
+            .setDaemon(true)
+            .build());
+
         process();
     }
 
+    /**
+     * Apply pending blocking migrations, each in its own transaction
+     */
     public void process() {
         try (DSLContext context = persistence.context()) {
 
             if (this.config.getBoolean("cleanup")) {
+                context.dropTableIfExists(Schema.table.schema_version).execute();
                 context.dropTableIfExists(Schema.table.task_run).execute();
                 context.dropTableIfExists(Schema.table.dag_run).execute();
                 context.dropTableIfExists(Schema.table.task).execute();
@@ -35,72 +77,253 @@ public class SchemaService extends AbstractComponent {
                 context.dropSequenceIfExists(Schema.sequence.task_run_seq).execute();
             }
 
-            context.createSequenceIfNotExists(Schema.sequence.dag_seq).execute();
-            context.createSequenceIfNotExists(Schema.sequence.task_seq).execute();
-            context.createSequenceIfNotExists(Schema.sequence.dag_run_seq).execute();
-            context.createSequenceIfNotExists(Schema.sequence.task_run_seq).execute();
-
-            context.createTableIfNotExists(Schema.table.dag)
-                .column(Schema.field.id)
+            context.createTableIfNotExists(Schema.table.schema_version)
                 .column(Schema.field.version)
-                .column(Schema.field.token)
-                .column(Schema.field.latest)
-                .constraint(constraint().primaryKey(Schema.field.id))
-                .constraint(constraint("dag_version").unique(Schema.field.token, Schema.field.version))
+                .column(Schema.field.description)
+                .column(Schema.field.applied_date)
+                .constraint(constraint().primaryKey(Schema.field.version))
                 .execute();
 
+            Set<Integer> applied = applied(context);
+            logger.info("schema versions {}", applied);
+
+            for (Migration migration : migrations) {
+                if (migration.online() || applied.contains(migration.version())) {
+                    continue;
+                }
+                logger.info("apply migration {}", migration);
+                context.transaction(conf -> {
+                    migration.migrate(DSL.using(conf));
+                    record(DSL.using(conf), migration);
+                });
+            }
+        }
+    }
+
+    /**
+     * Apply pending online migrations without transaction, as concurrent index creation
+     * can not be executed in transaction block.
+     */
+    public void processOnline() {
+        try (DSLContext context = persistence.context()) {
+            Set<Integer> applied = applied(context);
+            for (Migration migration : migrations) {
+                if (!migration.online() || applied.contains(migration.version())) {
+                    continue;
+                }
+                logger.info("apply online migration {}", migration);
+                long start = System.currentTimeMillis();
+                migration.migrate(context);
+                record(context, migration);
+                logger.info("applied online migration {} in {}ms", migration, System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    /**
+     * @return last applied migration version, or 0 for empty schema
+     */
+    public int version() {
+        try (DSLContext context = persistence.context()) {
+            return applied(context).stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+
+    /**
+     * @return versions of migrations not applied yet
+     */
+    public ImmutableList<Integer> pending() {
+        try (DSLContext context = persistence.context()) {
+            Set<Integer> applied = applied(context);
+            ImmutableList.Builder<Integer> pending = ImmutableList.builder();
+            migrations.stream()
+                .filter(migration -> !applied.contains(migration.version()))
+                .forEach(migration -> pending.add(migration.version()));
+            return pending.build();
+        }
+    }
+
+    private Set<Integer> applied(DSLContext context) {
+        return new TreeSet<>(context.select(Schema.field.version)
+            .from(Schema.table.schema_version)
+            .fetch(Schema.field.version));
+    }
+
+    private void record(DSLContext context, Migration migration) {
+        context.insertInto(
+            Schema.table.schema_version,
+            Schema.field.version,
+            Schema.field.description,
+            Schema.field.applied_date
+        )
+            .values(
+                migration.version(),
+                migration.description(),
+                new Timestamp(System.currentTimeMillis())
+            )
+            .execute();
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+        executorService.execute(() -> {
+            try {
+                processOnline();
+            } catch (Exception e) {
+                logger.error("error apply online migrations, retry on next start", e);
+            }
+        });
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        executorService.shutdownNow();
+    }
+
+    // migrations
+
+    /**
+     * Initial schema. Tables are created only if not exists, to adopt schema created before versioning.
+     */
+    private void createTables(DSLContext context) {
+        context.createSequenceIfNotExists(Schema.sequence.dag_seq).execute();
+        context.createSequenceIfNotExists(Schema.sequence.task_seq).execute();
+        context.createSequenceIfNotExists(Schema.sequence.dag_run_seq).execute();
+        context.createSequenceIfNotExists(Schema.sequence.task_run_seq).execute();
+
+        context.createTableIfNotExists(Schema.table.dag)
+            .column(Schema.field.id)
+            .column(Schema.field.version)
+            .column(Schema.field.token)
+            .column(Schema.field.latest)
+            .constraint(constraint().primaryKey(Schema.field.id))
+            .constraint(constraint("dag_version").unique(Schema.field.token, Schema.field.version))
+            .execute();
+
+        // partial indexes are not supported by embedded databases used in tests
+        if (context.dialect().family() == SQLDialect.POSTGRES) {
             context.createUniqueIndexIfNotExists("dag_token_version_latest")
                 .on(Schema.table.dag, Schema.field.token, Schema.field.latest)
                 .where(Schema.field.latest.isTrue())
                 .execute();
+        }
 
-            context.createTableIfNotExists(Schema.table.task)
-                .column(Schema.field.id)
-                .column(Schema.field.version)
-                .column(Schema.field.token)
-                .column(Schema.field.dag_id)
-                .column(Schema.field.depends)
-                .column(Schema.field.retry)
-                .column(Schema.field.operation)
-                .column(Schema.field.operation_config)
-                .column(Schema.field.operation_environment)
-                .constraint(constraint().primaryKey(Schema.field.id))
-                .constraint(constraint("dag_task_version").unique(Schema.field.dag_id, Schema.field.token, Schema.field.version))
-                .constraint(constraint("task_fk_dag").foreignKey(Schema.field.dag_id).references(Schema.table.dag, Schema.field.id))
-                .execute();
+        context.createTableIfNotExists(Schema.table.task)
+            .column(Schema.field.id)
+            .column(Schema.field.version)
+            .column(Schema.field.token)
+            .column(Schema.field.dag_id)
+            .column(Schema.field.depends)
+            .column(Schema.field.retry)
+            .column(Schema.field.operation)
+            .column(Schema.field.operation_config)
+            .column(Schema.field.operation_environment)
+            .constraint(constraint().primaryKey(Schema.field.id))
+            .constraint(constraint("dag_task_version").unique(Schema.field.dag_id, Schema.field.token, Schema.field.version))
+            .constraint(constraint("task_fk_dag").foreignKey(Schema.field.dag_id).references(Schema.table.dag, Schema.field.id))
+            .execute();
 
-            context.createTableIfNotExists(Schema.table.dag_run)
-                .column(Schema.field.id)
-                .column(Schema.field.dag_id)
-                .column(Schema.field.created_date)
-                .column(Schema.field.start_date)
-                .column(Schema.field.finish_date)
-                .column(Schema.field.status)
-                .constraint(constraint().primaryKey(Schema.field.id))
-                .constraint(constraint("dag_run_fk_dag").foreignKey(Schema.field.dag_id).references(Schema.table.dag, Schema.field.id))
-                .execute();
+        context.createTableIfNotExists(Schema.table.dag_run)
+            .column(Schema.field.id)
+            .column(Schema.field.dag_id)
+            .column(Schema.field.created_date)
+            .column(Schema.field.start_date)
+            .column(Schema.field.finish_date)
+            .column(Schema.field.status)
+            .constraint(constraint().primaryKey(Schema.field.id))
+            .constraint(constraint("dag_run_fk_dag").foreignKey(Schema.field.dag_id).references(Schema.table.dag, Schema.field.id))
+            .execute();
 
-            context.createTableIfNotExists(Schema.table.task_run)
-                .column(Schema.field.id)
-                .column(Schema.field.task_id)
-                .column(Schema.field.dag_run_id)
-                .column(Schema.field.created_date)
-                .column(Schema.field.start_date)
-                .column(Schema.field.finish_date)
-                .column(Schema.field.status)
-                .column(Schema.field.operation_status)
-                .column(Schema.field.operation_output)
-                .constraint(constraint().primaryKey(Schema.field.id))
-                .constraint(constraint("task_run_fk_dag_run").foreignKey(Schema.field.dag_run_id).references(Schema.table.dag_run, Schema.field.id))
-                .constraint(constraint("task_run_fk_task").foreignKey(Schema.field.task_id).references(Schema.table.task, Schema.field.id))
-                .execute();
+        context.createTableIfNotExists(Schema.table.task_run)
+            .column(Schema.field.id)
+            .column(Schema.field.task_id)
+            .column(Schema.field.dag_run_id)
+            .column(Schema.field.created_date)
+            .column(Schema.field.start_date)
+            .column(Schema.field.finish_date)
+            .column(Schema.field.status)
+            .column(Schema.field.operation_status)
+            .column(Schema.field.operation_output)
+            .constraint(constraint().primaryKey(Schema.field.id))
+            .constraint(constraint("task_run_fk_dag_run").foreignKey(Schema.field.dag_run_id).references(Schema.table.dag_run, Schema.field.id))
+            .constraint(constraint("task_run_fk_task").foreignKey(Schema.field.task_id).references(Schema.table.task, Schema.field.id))
+            .execute();
 
-            context.createTableIfNotExists(Schema.table.dag_schedule)
-                .column(Schema.field.token)
-                .column(Schema.field.enabled)
-                .column(Schema.field.cron_expression)
-                .constraint(constraint().primaryKey(Schema.field.token))
-                .execute();
+        context.createTableIfNotExists(Schema.table.dag_schedule)
+            .column(Schema.field.token)
+            .column(Schema.field.enabled)
+            .column(Schema.field.cron_expression)
+            .constraint(constraint().primaryKey(Schema.field.token))
+            .execute();
+    }
+
+    /**
+     * Nullable, existing tasks are retried immediately as before
+     */
+    private void addTaskRetryPolicy(DSLContext context) {
+        context.alterTable(Schema.table.task)
+            .addColumn(Schema.field.retry_policy, Schema.field.retry_policy.getDataType())
+            .execute();
+    }
+
+    private void createTaskRunIndex(DSLContext context) {
+        createIndexConcurrently(context, "task_run_dag_run_id", Schema.table.task_run, null, Schema.field.dag_run_id);
+    }
+
+    /**
+     * Active dag runs are small part of the table, so in PostgreSQL they are indexed by partial index.
+     */
+    private void createDagRunIndex(DSLContext context) {
+        if (context.dialect().family() == SQLDialect.POSTGRES) {
+            createIndexConcurrently(context, "dag_run_active", Schema.table.dag_run,
+                Schema.field.status.in(DagRunStatus.PENDING.name(), DagRunStatus.RUNNING.name()),
+                Schema.field.dag_id);
+        } else {
+            createIndexConcurrently(context, "dag_run_active", Schema.table.dag_run, null,
+                Schema.field.status, Schema.field.dag_id);
+        }
+    }
+
+    /**
+     * In PostgreSQL index is built without lock of writes. Failed concurrent build leaves invalid index,
+     * which is dropped before retry. Other databases use plain create index.
+     */
+    private void createIndexConcurrently(DSLContext context, String name, Table<?> table, Condition where, Field<?>... fields) {
+        if (context.dialect().family() != SQLDialect.POSTGRES) {
+            CreateIndexStep step = context.createIndexIfNotExists(name);
+            if (where != null) {
+                step.on(table, fields).where(where).execute();
+            } else {
+                step.on(table, fields).execute();
+            }
+            return;
+        }
+
+        boolean invalid = context.fetchExists(
+            DSL.selectOne()
+                .from("pg_index")
+                .join("pg_class").on("pg_class.oid = pg_index.indexrelid")
+                .where("pg_class.relname = {0}", DSL.inline(name))
+                .and("not pg_index.indisvalid")
+        );
+        if (invalid) {
+            logger.warn("drop invalid index {}", name);
+            context.execute("DROP INDEX CONCURRENTLY IF EXISTS {0}", DSL.name(name));
+        }
+
+        String columns = Arrays.stream(fields)
+            .map(field -> context.render(DSL.name(field.getName())))
+            .collect(Collectors.joining(", "));
+        String sql = "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + context.render(DSL.name(name))
+            + " ON " + context.render(table)
+            + " (" + columns + ")";
+        if (where != null) {
+            sql += " WHERE " + context.renderInlined(where);
         }
+        context.execute(sql);
     }
 }
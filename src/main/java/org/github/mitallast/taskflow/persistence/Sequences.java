@@ -0,0 +1,26 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.collect.ImmutableList;
+import org.jooq.DSLContext;
+import org.jooq.Sequence;
+
+import static org.jooq.impl.DSL.generateSeries;
+
+final class Sequences {
+
+    private Sequences() {
+    }
+
+    /**
+     * Allocate count of sequence values in a single statement.
+     */
+    static ImmutableList<Long> nextval(DSLContext context, Sequence<Long> sequence, int count) {
+        if (count == 0) {
+            return ImmutableList.of();
+        }
+        return ImmutableList.copyOf(context
+            .select(sequence.nextval())
+            .from(generateSeries(1, count))
+            .fetch(0, Long.class));
+    }
+}
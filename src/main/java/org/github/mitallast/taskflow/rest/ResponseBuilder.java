@@ -2,10 +2,13 @@ package org.github.mitallast.taskflow.rest;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.stream.ChunkedInput;
 import io.netty.util.AsciiString;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.Iterator;
 
 public interface ResponseBuilder {
 
@@ -25,13 +28,32 @@ public interface ResponseBuilder {
 
     void json(Object json);
 
+    /**
+     * Send items as json array with chunked transfer encoding. All items, including the first one,
+     * are pulled and serialized out of event loop. First item is pulled before response is started,
+     * so its failure is reported as error response. Next items are pulled as connection becomes
+     * writable, failure of them closes connection.
+     */
+    void jsonArray(Iterator<?> items);
+
     void text(String content);
 
+    /**
+     * Send content of input with chunked transfer encoding. Input may return null chunk
+     * while it has no data yet, in this case transfer is resumed periodically until end of input.
+     */
+    void stream(ChunkedInput<ByteBuf> input);
+
     void data(ByteBuf content);
 
     void file(URL url);
 
     void file(File file);
 
+    /**
+     * Send range of file without copy to user space, file is not required to exist after call
+     */
+    void file(File file, long offset, long length) throws IOException;
+
     void empty();
 }
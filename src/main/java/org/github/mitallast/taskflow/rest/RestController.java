@@ -1,6 +1,7 @@
 package org.github.mitallast.taskflow.rest;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import io.netty.buffer.ByteBuf;
@@ -16,7 +17,10 @@ import org.github.mitallast.taskflow.rest.netty.HttpRequest;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -24,6 +28,8 @@ import java.util.function.Function;
 public class RestController extends AbstractComponent {
 
     private final JsonService jsonService;
+    // loads data of streamed responses, so blocking reads do not stall event loop
+    private final ExecutorService streamExecutor;
 
     private final PathTrie<RestHandler> getHandlers = new PathTrie<>();
     private final PathTrie<RestHandler> postHandlers = new PathTrie<>();
@@ -39,13 +45,17 @@ public class RestController extends AbstractComponent {
     public RestController(Config config, JsonService jsonService) {
         super(config.getConfig("rest"), RestController.class);
         this.jsonService = jsonService;
+        this.streamExecutor = Executors.newFixedThreadPool(this.config.getInt("stream_threads"), new ThreadFactoryBuilder()
+            .setNameFormat("rest-stream-%d")
+            .setDaemon(true)
+            .build());
 
         this.responseMappers = new ResponseMappers();
         this.paramMappers = new ParamMappers();
     }
 
     public void dispatchRequest(ChannelHandlerContext ctx, FullHttpRequest httpRequest) {
-        final HttpRequest request = new HttpRequest(ctx, httpRequest, jsonService);
+        final HttpRequest request = new HttpRequest(ctx, httpRequest, jsonService, streamExecutor);
         try {
             executeHandler(request);
         } catch (Throwable e) {
@@ -165,6 +175,10 @@ public class RestController extends AbstractComponent {
             return (request, t) -> request.response().json(t);
         }
 
+        public <T> BiConsumer<RestRequest, Iterator<T>> jsonArray() {
+            return (request, items) -> request.response().jsonArray(items);
+        }
+
         public <T> BiConsumer<RestRequest, Optional<T>> optionalJson() {
             return optional(json());
         }
@@ -19,5 +19,8 @@ public class RestModule extends AbstractModule {
         bind(DagRunController.class).asEagerSingleton();
         bind(DagScheduleController.class).asEagerSingleton();
         bind(OperationController.class).asEagerSingleton();
+        bind(ExecutorController.class).asEagerSingleton();
+        bind(PersistenceController.class).asEagerSingleton();
+        bind(TaskLogController.class).asEagerSingleton();
     }
 }
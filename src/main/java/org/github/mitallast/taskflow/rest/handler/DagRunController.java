@@ -1,14 +1,32 @@
 package org.github.mitallast.taskflow.rest.handler;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import org.github.mitallast.taskflow.dag.DagRun;
 import org.github.mitallast.taskflow.dag.DagRunPersistenceService;
+import org.github.mitallast.taskflow.dag.DagRunQuery;
+import org.github.mitallast.taskflow.dag.DagRunStatus;
 import org.github.mitallast.taskflow.rest.RestController;
+import org.github.mitallast.taskflow.rest.RestRequest;
 import org.github.mitallast.taskflow.executor.DagRunExecutor;
+import org.joda.time.DateTime;
+
+import java.util.Collections;
+import java.util.Iterator;
 
 public class DagRunController {
 
+    // max count of dag runs per page
+    private static final int MAX_LIMIT = 10000;
+    private static final int DEFAULT_LIMIT = 100;
+    // count of dag runs loaded from database at once while page is streamed
+    private static final int BATCH_SIZE = 100;
+
+    private final DagRunPersistenceService persistenceService;
     private final DagRunExecutor dagRunExecutor;
 
     @Inject
@@ -17,10 +35,12 @@ public class DagRunController {
         DagRunPersistenceService persistenceService,
         DagRunExecutor dagRunExecutor
     ) {
+        this.persistenceService = persistenceService;
         this.dagRunExecutor = dagRunExecutor;
 
-        controller.handler(persistenceService::findDagRuns)
-            .response(controller.response().json())
+        controller.handler(this::findDagRuns)
+            .param(this::query)
+            .response(controller.response().jsonArray())
             .handle(HttpMethod.GET, "api/dag/run");
 
         controller.handler(persistenceService::findPendingDagRuns)
@@ -49,6 +69,56 @@ public class DagRunController {
             .handle(HttpMethod.POST, "api/dag/run/id/{id}/cancel");
     }
 
+    /**
+     * Query params: before (dag run id), limit, status, token, from and to (ISO-8601 created date),
+     * output (include task run output, false by default)
+     */
+    private DagRunQuery query(RestRequest request) {
+        int limit = request.hasParam("limit") ? Integer.parseInt(request.param("limit")) : DEFAULT_LIMIT;
+        Preconditions.checkArgument(limit > 0 && limit <= MAX_LIMIT, "limit should be in range 1.." + MAX_LIMIT);
+        return new DagRunQuery(
+            request.hasParam("before") ? Long.valueOf(request.param("before")) : null,
+            limit,
+            request.hasParam("status") ? DagRunStatus.valueOf(request.param("status").toUpperCase()) : null,
+            request.hasParam("token") ? request.param("token") : null,
+            request.hasParam("from") ? DateTime.parse(request.param("from")) : null,
+            request.hasParam("to") ? DateTime.parse(request.param("to")) : null,
+            request.hasParam("output") && Boolean.parseBoolean(request.param("output"))
+        );
+    }
+
+    /**
+     * Page is loaded lazily by batches, while it's streamed to client
+     */
+    private Iterator<DagRun> findDagRuns(DagRunQuery query) {
+        return new AbstractIterator<DagRun>() {
+            private int remaining = query.limit();
+            private Long before = query.before();
+            private Iterator<DagRun> batch = Collections.emptyIterator();
+            private boolean last;
+
+            @Override
+            protected DagRun computeNext() {
+                if (!batch.hasNext()) {
+                    if (last || remaining == 0) {
+                        return endOfData();
+                    }
+                    int size = Math.min(remaining, BATCH_SIZE);
+                    ImmutableList<DagRun> dagRuns = persistenceService.findDagRuns(query.page(before, size));
+                    last = dagRuns.size() < size;
+                    if (dagRuns.isEmpty()) {
+                        return endOfData();
+                    }
+                    batch = dagRuns.iterator();
+                }
+                DagRun dagRun = batch.next();
+                before = dagRun.id();
+                remaining--;
+                return dagRun;
+            }
+        };
+    }
+
     private boolean cancel(long id) {
         dagRunExecutor.cancel(id);
         return true;
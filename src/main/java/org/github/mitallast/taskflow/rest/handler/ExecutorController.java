@@ -0,0 +1,16 @@
+package org.github.mitallast.taskflow.rest.handler;
+
+import com.google.inject.Inject;
+import io.netty.handler.codec.http.HttpMethod;
+import org.github.mitallast.taskflow.executor.TaskRunQueue;
+import org.github.mitallast.taskflow.rest.RestController;
+
+public class ExecutorController {
+
+    @Inject
+    public ExecutorController(RestController controller, TaskRunQueue taskRunQueue) {
+        controller.handler(taskRunQueue::stats)
+            .response(controller.response().json())
+            .handle(HttpMethod.GET, "api/executor/task/queue");
+    }
+}
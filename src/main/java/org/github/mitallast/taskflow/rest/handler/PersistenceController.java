@@ -0,0 +1,16 @@
+package org.github.mitallast.taskflow.rest.handler;
+
+import com.google.inject.Inject;
+import io.netty.handler.codec.http.HttpMethod;
+import org.github.mitallast.taskflow.persistence.CachedDagPersistenceService;
+import org.github.mitallast.taskflow.rest.RestController;
+
+public class PersistenceController {
+
+    @Inject
+    public PersistenceController(RestController controller, CachedDagPersistenceService dagPersistence) {
+        controller.handler(dagPersistence::stats)
+            .response(controller.response().json())
+            .handle(HttpMethod.GET, "api/persistence/dag/cache");
+    }
+}
@@ -0,0 +1,172 @@
+package org.github.mitallast.taskflow.rest.handler;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.AsciiString;
+import org.github.mitallast.taskflow.dag.DagRunPersistenceService;
+import org.github.mitallast.taskflow.dag.TaskRun;
+import org.github.mitallast.taskflow.dag.TaskRunStatus;
+import org.github.mitallast.taskflow.log.TaskLogChunk;
+import org.github.mitallast.taskflow.log.TaskLogService;
+import org.github.mitallast.taskflow.rest.ResponseBuilder;
+import org.github.mitallast.taskflow.rest.RestController;
+import org.github.mitallast.taskflow.rest.RestRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class TaskLogController {
+
+    private static final AsciiString LOG_SIZE = new AsciiString("X-Log-Size");
+    private static final AsciiString LOG_COMPLETE = new AsciiString("X-Log-Complete");
+    private static final int CHUNK_SIZE = 8192;
+
+    private final DagRunPersistenceService persistenceService;
+    private final TaskLogService taskLogService;
+
+    @Inject
+    public TaskLogController(
+        RestController controller,
+        DagRunPersistenceService persistenceService,
+        TaskLogService taskLogService
+    ) {
+        this.persistenceService = persistenceService;
+        this.taskLogService = taskLogService;
+
+        controller.register(HttpMethod.GET, "api/dag/run/id/{id}/task/{taskRunId}/log", this::log);
+    }
+
+    /**
+     * Query params: offset (bytes, 0 by default), limit (bytes, up to end of log by default),
+     * follow (stream new output until task run log is closed, false by default).
+     * <p>
+     * Complete log is sent from file without copy, running log is streamed by chunks.
+     * Log of task run which is not started yet is empty and not complete, even with follow.
+     */
+    private void log(RestRequest request) {
+        long id = Long.parseLong(request.param("id"));
+        long taskRunId = Long.parseLong(request.param("taskRunId"));
+        long offset = request.hasParam("offset") ? Long.parseLong(request.param("offset")) : 0;
+        long limit = request.hasParam("limit") ? Long.parseLong(request.param("limit")) : Long.MAX_VALUE;
+        boolean follow = request.hasParam("follow") && Boolean.parseBoolean(request.param("follow"));
+        Preconditions.checkArgument(offset >= 0, "offset should not be negative");
+        Preconditions.checkArgument(limit >= 0, "limit should not be negative");
+
+        Optional<TaskRun> taskRun = persistenceService.findDagRun(id)
+            .flatMap(dagRun -> dagRun.tasks().stream().filter(t -> t.id() == taskRunId).findFirst());
+        if (!taskRun.isPresent()) {
+            request.response().status(HttpResponseStatus.NOT_FOUND).empty();
+            return;
+        }
+        boolean finished = taskRun.get().status() != TaskRunStatus.PENDING && taskRun.get().status() != TaskRunStatus.RUNNING;
+
+        try {
+            long end = offset + Math.min(limit, Long.MAX_VALUE - offset);
+            Path path = taskLogService.path(taskRunId);
+            if (!taskLogService.isOpen(taskRunId)) {
+                long size = Files.exists(path) ? Files.size(path) : 0;
+                long start = Math.min(offset, size);
+                long length = Math.min(end, size) - start;
+                ResponseBuilder response = request.response()
+                    .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN)
+                    .header(LOG_SIZE, size)
+                    .header(LOG_COMPLETE, String.valueOf(finished));
+                if (length > 0) {
+                    response.file(path.toFile(), start, length);
+                } else {
+                    response.data(Unpooled.EMPTY_BUFFER);
+                }
+            } else {
+                request.response()
+                    .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN)
+                    .header(LOG_SIZE, taskLogService.size(taskRunId))
+                    .header(LOG_COMPLETE, "false")
+                    .stream(new LogChunkedInput(taskRunId, offset, end, follow));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads log range by chunks. Without follow, input ends at current end of log.
+     * With follow, input waits for new output until log writer is closed.
+     */
+    private class LogChunkedInput implements ChunkedInput<ByteBuf> {
+        private final long taskRunId;
+        private final long end;
+        private final boolean follow;
+        private long offset;
+        private long progress;
+        private boolean ended;
+
+        private LogChunkedInput(long taskRunId, long offset, long end, boolean follow) {
+            this.taskRunId = taskRunId;
+            this.offset = offset;
+            this.end = end;
+            this.follow = follow;
+        }
+
+        @Override
+        public boolean isEndOfInput() throws Exception {
+            if (!ended && offset >= end) {
+                ended = true;
+            }
+            if (!ended && follow && !taskLogService.isOpen(taskRunId) && offset >= taskLogService.size(taskRunId)) {
+                ended = true;
+            }
+            return ended;
+        }
+
+        @Override
+        public void close() throws Exception {
+        }
+
+        @Deprecated
+        @Override
+        public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+            if (isEndOfInput()) {
+                return null;
+            }
+            TaskLogChunk chunk = taskLogService.read(taskRunId, offset, (int) Math.min(CHUNK_SIZE, end - offset));
+            if (chunk.data().length == 0) {
+                if (!follow || chunk.complete()) {
+                    ended = true;
+                    return Unpooled.EMPTY_BUFFER;
+                }
+                // wait for new output
+                return null;
+            }
+            offset = chunk.nextOffset();
+            progress += chunk.data().length;
+            return Unpooled.wrappedBuffer(chunk.data());
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public long progress() {
+            return progress;
+        }
+    }
+}
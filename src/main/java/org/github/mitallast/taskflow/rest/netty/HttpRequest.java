@@ -2,16 +2,21 @@ package org.github.mitallast.taskflow.rest.netty;
 
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.stream.ChunkedNioFile;
 import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.github.mitallast.taskflow.common.json.JsonService;
@@ -26,7 +31,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -41,6 +52,9 @@ public class HttpRequest implements RestRequest {
     private static final AsciiString TEXT_CSS = new AsciiString("text/css");
     private static final AsciiString TEXT_HTML = new AsciiString("text/html");
 
+    // interval of resume transfer of streamed input, which has no data yet
+    private static final long STREAM_RESUME_INTERVAL = 100;
+
     private static final DateTimeFormatter dateFormat = DateTimeFormat
         .forPattern("EEE, dd MMM yyyy HH:mm:ss Z")
         .withLocale(Locale.US)
@@ -50,15 +64,17 @@ public class HttpRequest implements RestRequest {
     private final FullHttpRequest httpRequest;
     private final HttpMethod httpMethod;
     private final JsonService jsonService;
+    private final Executor streamExecutor;
 
     private Map<String, String> paramMap;
     private String queryPath;
 
-    public HttpRequest(ChannelHandlerContext ctx, FullHttpRequest request, JsonService jsonService) {
+    public HttpRequest(ChannelHandlerContext ctx, FullHttpRequest request, JsonService jsonService, Executor streamExecutor) {
         this.ctx = ctx;
         this.httpRequest = request;
         this.httpMethod = request.method();
         this.jsonService = jsonService;
+        this.streamExecutor = streamExecutor;
 
         parseQueryString();
     }
@@ -131,6 +147,122 @@ public class HttpRequest implements RestRequest {
         return new HttpResponseBuilder();
     }
 
+    /**
+     * Serializes items into chunks of about {@link #CHUNK_SIZE} bytes on stream executor, so blocking
+     * iterator does not stall event loop. Next chunk is loaded while at most {@link #MAX_CHUNKS} chunks
+     * are waiting for write, and only one chunk is loaded at once.
+     */
+    private class JsonArrayChunkedInput implements ChunkedInput<ByteBuf> {
+        private static final int CHUNK_SIZE = 8192;
+        private static final int MAX_CHUNKS = 4;
+
+        private final Iterator<?> items;
+        private final ConcurrentLinkedQueue<ByteBuf> chunks = new ConcurrentLinkedQueue<>();
+        // guards iterator, set while chunk is loaded
+        private final AtomicBoolean loading = new AtomicBoolean();
+        private volatile boolean loaded;
+        private volatile boolean closed;
+        private boolean started;
+        private long progress;
+
+        private JsonArrayChunkedInput(Iterator<?> items) {
+            this.items = items;
+        }
+
+        private void load() {
+            if (!loaded && !closed && chunks.size() < MAX_CHUNKS && loading.compareAndSet(false, true)) {
+                streamExecutor.execute(this::loadChunk);
+            }
+        }
+
+        private void loadChunk() {
+            ByteBuf buf = ctx.alloc().buffer(CHUNK_SIZE);
+            try {
+                if (!started) {
+                    buf.writeByte('[');
+                }
+                while (buf.readableBytes() < CHUNK_SIZE && items.hasNext()) {
+                    if (started) {
+                        buf.writeByte(',');
+                    }
+                    started = true;
+                    jsonService.serialize(buf, items.next());
+                }
+                started = true;
+                if (!items.hasNext()) {
+                    buf.writeByte(']');
+                    loaded = true;
+                }
+                chunks.add(buf);
+            } catch (Throwable e) {
+                // response is already started, so truncated body could be detected by client only by closed connection
+                logger.warn("failed to load json array chunk, close connection", e);
+                buf.release();
+                closed = true;
+                ctx.channel().close();
+                return;
+            } finally {
+                loading.set(false);
+            }
+            if (closed) {
+                release();
+                return;
+            }
+            load();
+            ChunkedWriteHandler handler = ctx.pipeline().get(ChunkedWriteHandler.class);
+            if (handler != null) {
+                handler.resumeTransfer();
+            }
+        }
+
+        private void release() {
+            ByteBuf buf;
+            while ((buf = chunks.poll()) != null) {
+                buf.release();
+            }
+        }
+
+        @Override
+        public boolean isEndOfInput() throws Exception {
+            return loaded && chunks.isEmpty();
+        }
+
+        @Override
+        public void close() throws Exception {
+            closed = true;
+            release();
+        }
+
+        @Deprecated
+        @Override
+        public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        /**
+         * @return next loaded chunk, or null if it's not loaded yet
+         */
+        @Override
+        public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+            ByteBuf buf = chunks.poll();
+            load();
+            if (buf != null) {
+                progress += buf.readableBytes();
+            }
+            return buf;
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public long progress() {
+            return progress;
+        }
+    }
+
     private class HttpResponseBuilder implements ResponseBuilder {
         private HttpResponseStatus status = HttpResponseStatus.OK;
         private final HttpHeaders headers = new DefaultHttpHeaders(false);
@@ -204,6 +336,37 @@ public class HttpRequest implements RestRequest {
             data(buf);
         }
 
+        @Override
+        public void jsonArray(Iterator<?> items) {
+            Preconditions.checkNotNull(items);
+            boolean keepAlive = HttpUtil.isKeepAlive(httpRequest);
+            // first page is loaded out of event loop too, it fails before response is started
+            streamExecutor.execute(() -> {
+                try {
+                    items.hasNext();
+                } catch (Throwable e) {
+                    logger.warn("failed to load json array", e);
+                    ctx.executor().execute(() -> status(HttpResponseStatus.INTERNAL_SERVER_ERROR).error(e));
+                    return;
+                }
+                JsonArrayChunkedInput input = new JsonArrayChunkedInput(items);
+                input.load();
+                ctx.executor().execute(() -> {
+                    header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                    DefaultHttpResponse response = new DefaultHttpResponse(HTTP_1_1, status, headers);
+                    HttpUtil.setTransferEncodingChunked(response, true);
+                    if (keepAlive) {
+                        HttpUtil.setKeepAlive(response, true);
+                    }
+                    ctx.write(response);
+                    ChannelFuture write = ctx.writeAndFlush(new HttpChunkedInput(input));
+                    if (!keepAlive) {
+                        write.addListener(ChannelFutureListener.CLOSE);
+                    }
+                });
+            });
+        }
+
         @Override
         public void text(String content) {
             Preconditions.checkNotNull(content);
@@ -211,6 +374,28 @@ public class HttpRequest implements RestRequest {
             data(Unpooled.copiedBuffer(content, CharsetUtil.UTF_8));
         }
 
+        @Override
+        public void stream(ChunkedInput<ByteBuf> input) {
+            Preconditions.checkNotNull(input);
+            DefaultHttpResponse response = new DefaultHttpResponse(HTTP_1_1, status, headers);
+            HttpUtil.setTransferEncodingChunked(response, true);
+            if (HttpUtil.isKeepAlive(httpRequest)) {
+                HttpUtil.setKeepAlive(response, true);
+            }
+            ctx.write(response);
+            ChannelFuture write = ctx.writeAndFlush(new HttpChunkedInput(input));
+            ScheduledFuture<?> resume = ctx.executor().scheduleAtFixedRate(() -> {
+                ChunkedWriteHandler handler = ctx.pipeline().get(ChunkedWriteHandler.class);
+                if (handler != null) {
+                    handler.resumeTransfer();
+                }
+            }, STREAM_RESUME_INTERVAL, STREAM_RESUME_INTERVAL, TimeUnit.MILLISECONDS);
+            write.addListener(future -> resume.cancel(false));
+            if (!HttpUtil.isKeepAlive(httpRequest)) {
+                write.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
         @Override
         public void data(ByteBuf content) {
             Preconditions.checkNotNull(content);
@@ -330,6 +515,27 @@ public class HttpRequest implements RestRequest {
             }
         }
 
+        @Override
+        public void file(File file, long offset, long length) throws IOException {
+            header(HttpHeaderNames.CONTENT_LENGTH, length);
+            DefaultHttpResponse response = new DefaultHttpResponse(HTTP_1_1, status, headers);
+            if (HttpUtil.isKeepAlive(httpRequest)) {
+                HttpUtil.setKeepAlive(response, true);
+            }
+            // open before response is written, region keeps channel open even if file is removed
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            ctx.write(response);
+            if (length > 0) {
+                ctx.write(new DefaultFileRegion(channel, offset, length));
+            } else {
+                channel.close();
+            }
+            ChannelFuture write = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (!HttpUtil.isKeepAlive(httpRequest)) {
+                write.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
         private void mimetype(String path) {
             if (path.endsWith(".js")) {
                 header(HttpHeaderNames.CONTENT_TYPE, APPLICATION_JAVASCRIPT);
@@ -1,8 +1,12 @@
 package org.github.mitallast.taskflow.rest.netty;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -15,9 +19,17 @@ import org.apache.logging.log4j.Logger;
 import org.github.mitallast.taskflow.common.EventBus;
 import org.github.mitallast.taskflow.common.json.JsonService;
 import org.github.mitallast.taskflow.executor.event.DagRunEvent;
+import org.github.mitallast.taskflow.executor.event.TaskRunNewOutput;
+import org.github.mitallast.taskflow.executor.event.TaskRunOutputDropped;
 
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
 @ChannelHandler.Sharable
@@ -28,11 +40,36 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     private final Logger logger = LogManager.getLogger();
     private final JsonService jsonService;
     private final EventBus<DagRunEvent> eventBus;
+    private final int queueSize;
+    private final ConcurrentMap<String, Subscription> subscriptions;
 
     @Inject
-    public WebSocketFrameHandler(JsonService jsonService, EventBus<DagRunEvent> eventBus) {
+    public WebSocketFrameHandler(Config config, JsonService jsonService, EventBus<DagRunEvent> eventBus) {
         this.jsonService = jsonService;
         this.eventBus = eventBus;
+        this.queueSize = config.getInt("rest.websocket.queue_size");
+        Preconditions.checkArgument(queueSize > 0, "rest.websocket.queue_size should be positive");
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.eventBus.addRemoveListener(this::remove);
+    }
+
+    /**
+     * Channel is removed from event bus once dag run is finished, drop its subscription,
+     * so it is not reused by later subscribe and does not hold consumers.
+     * Subscription may be registered again by subscribe concurrent with removal, so unsubscribe it too.
+     */
+    private void remove(String channel) {
+        subscriptions.computeIfPresent(channel, (c, subscription) -> {
+            eventBus.unsubscribe(c, subscription);
+            for (ChannelConsumer consumer : subscription.consumers) {
+                consumer.channels.remove(c);
+            }
+            return null;
+        });
+    }
+
+    int subscriptions() {
+        return subscriptions.size();
     }
 
     @Override
@@ -49,6 +86,14 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            ctx.channel().attr(consumerAttr).get().drain();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         logger.error("unexpected exception", cause);
@@ -87,39 +132,162 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         }
     }
 
-    private class ChannelConsumer implements BiConsumer<String, DagRunEvent> {
+    /**
+     * Single event bus subscriber per channel, which serializes each event once
+     * and shares the encoded buffer with all subscribed connections.
+     */
+    private class Subscription implements BiConsumer<String, DagRunEvent> {
+        private final CopyOnWriteArraySet<ChannelConsumer> consumers = new CopyOnWriteArraySet<>();
+
+        @Override
+        public void accept(String channel, DagRunEvent event) {
+            ByteBuf content = PooledByteBufAllocator.DEFAULT.buffer();
+            try {
+                jsonService.serialize(content, ImmutableMap.of("channel", channel, "event", event));
+                for (ChannelConsumer consumer : consumers) {
+                    consumer.offer(channel, event, content);
+                }
+            } finally {
+                content.release();
+            }
+        }
+    }
+
+    /**
+     * Events are queued per connection and written on the event loop while channel is writable,
+     * with single flush per drain. Output events which does not fit into the queue are dropped,
+     * and subscriber receives {@link TaskRunOutputDropped} instead, once it catch up.
+     * Other events are always queued, they are rare and required for consistent state of client.
+     */
+    private class ChannelConsumer {
         private final Channel wsChannel;
         private final CopyOnWriteArraySet<String> channels;
+        private final AtomicBoolean scheduled;
+        // guarded by this, encoded events
+        private final ArrayDeque<ByteBuf> queue;
+        // guarded by this, count of dropped lines by channel and task run
+        private final Map<String, Map<Long, Long>> dropped;
+        // guarded by this
+        private boolean closed;
 
         public ChannelConsumer(Channel wsChannel) {
             this.wsChannel = wsChannel;
             channels = new CopyOnWriteArraySet<>();
+            scheduled = new AtomicBoolean();
+            queue = new ArrayDeque<>();
+            dropped = new LinkedHashMap<>();
         }
 
-        @Override
-        public void accept(String channel, DagRunEvent event) {
-            String json = jsonService.serialize(ImmutableMap.of("channel", channel, "event", event));
-            logger.info("send {}: {}", channel, json);
-            wsChannel.writeAndFlush(new TextWebSocketFrame(json));
+        /**
+         * Enqueue encoded event, content is retained if event is accepted
+         */
+        public void offer(String channel, DagRunEvent event, ByteBuf content) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (event instanceof TaskRunNewOutput) {
+                    long taskRunId = ((TaskRunNewOutput) event).taskRunId();
+                    Map<Long, Long> droppedLines = dropped.get(channel);
+                    // once lines are dropped, keep dropping until client is notified, so it does not see a gap
+                    if (queue.size() >= queueSize || (droppedLines != null && droppedLines.containsKey(taskRunId))) {
+                        long lines = ((TaskRunNewOutput) event).lines();
+                        dropped.computeIfAbsent(channel, c -> new LinkedHashMap<>()).merge(taskRunId, lines, Long::sum);
+                        return;
+                    }
+                }
+                queue.add(content.retainedDuplicate());
+            }
+            drain();
+        }
+
+        /**
+         * Schedule write of queued events on the event loop
+         */
+        public void drain() {
+            if (scheduled.compareAndSet(false, true)) {
+                wsChannel.eventLoop().execute(this::write);
+            }
+        }
+
+        private void write() {
+            scheduled.set(false);
+            int written = 0;
+            while (wsChannel.isWritable()) {
+                ByteBuf content = poll();
+                if (content == null) {
+                    break;
+                }
+                wsChannel.write(new TextWebSocketFrame(content));
+                written++;
+            }
+            if (written > 0) {
+                wsChannel.flush();
+            }
+        }
+
+        private synchronized ByteBuf poll() {
+            ByteBuf content = queue.poll();
+            if (content == null && !dropped.isEmpty()) {
+                Map.Entry<String, Map<Long, Long>> channel = dropped.entrySet().iterator().next();
+                Iterator<Map.Entry<Long, Long>> iterator = channel.getValue().entrySet().iterator();
+                Map.Entry<Long, Long> lines = iterator.next();
+                long taskRunId = lines.getKey();
+                long count = lines.getValue();
+                iterator.remove();
+                if (channel.getValue().isEmpty()) {
+                    dropped.remove(channel.getKey());
+                }
+                logger.warn("{} dropped {} lines of task run {}", wsChannel, count, taskRunId);
+                content = wsChannel.alloc().buffer();
+                jsonService.serialize(content, ImmutableMap.of(
+                    "channel", channel.getKey(),
+                    "event", new TaskRunOutputDropped(taskRunId, count)));
+            }
+            return content;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            for (ByteBuf content : queue) {
+                content.release();
+            }
+            queue.clear();
+            dropped.clear();
         }
 
         public void unsubscribe(String channel) {
             logger.info("unsubscribe {}", channel);
-            eventBus.unsubscribe(channel, this);
             channels.remove(channel);
+            subscriptions.computeIfPresent(channel, (c, subscription) -> {
+                subscription.consumers.remove(this);
+                if (subscription.consumers.isEmpty()) {
+                    eventBus.unsubscribe(c, subscription);
+                    return null;
+                }
+                return subscription;
+            });
         }
 
         public void unsubscribe() {
             for (String channel : channels) {
-                logger.info("unsubscribe {}", channel);
-                eventBus.unsubscribe(channel, this);
+                unsubscribe(channel);
             }
-            channels.clear();
+            close();
         }
 
         public void subscribe(String channel) {
             logger.info("subscribe {}", channel);
-            eventBus.subscribe(channel, this);
+            channels.add(channel);
+            subscriptions.compute(channel, (c, subscription) -> {
+                if (subscription == null) {
+                    subscription = new Subscription();
+                }
+                // idempotent, registers subscription again if channel is removed concurrently
+                eventBus.subscribe(c, subscription);
+                subscription.consumers.add(this);
+                return subscription;
+            });
         }
 
         @Override
@@ -0,0 +1,10 @@
+package org.github.mitallast.taskflow.timer;
+
+import com.google.inject.AbstractModule;
+
+public class TimerModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(TimerService.class).asEagerSingleton();
+    }
+}
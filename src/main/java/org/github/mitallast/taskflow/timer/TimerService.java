@@ -0,0 +1,79 @@
+package org.github.mitallast.taskflow.timer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.typesafe.config.Config;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.github.mitallast.taskflow.common.component.AbstractLifecycleComponent;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared timer of task deadlines, retry delays and sensor polls.
+ * <p>
+ * Timeouts are kept in hashed wheel driven by single thread, so pending timeout costs one small
+ * object, and no thread is blocked while waiting. Timeout fires within one tick after its deadline.
+ * Tasks are executed in timer thread, so blocking tasks should be passed to executor.
+ */
+public class TimerService extends AbstractLifecycleComponent {
+
+    private final HashedWheelTimer timer;
+
+    @Inject
+    public TimerService(Config config) {
+        super(config.getConfig("timer"), TimerService.class);
+        long tick = this.config.getDuration("tick", TimeUnit.MILLISECONDS);
+        int ticksPerWheel = this.config.getInt("ticks_per_wheel");
+        Preconditions.checkArgument(tick > 0, "tick should be positive");
+        Preconditions.checkArgument(ticksPerWheel > 0, "ticks_per_wheel should be positive");
+        timer = new HashedWheelTimer(new ThreadFactoryBuilder()
+            .setNameFormat("timer")
+            .setDaemon(true)
+            .build(), tick, TimeUnit.MILLISECONDS, ticksPerWheel, false);
+    }
+
+    /**
+     * Run task in timer thread after delay, task should not block.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return timer.newTimeout(timeout -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.warn("unexpected exception", e);
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * Run task in executor after delay.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        return schedule(() -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                logger.warn("timeout task rejected", e);
+            }
+        }, delay, unit);
+    }
+
+    @Override
+    protected void doStart() throws IOException {
+        timer.start();
+    }
+
+    @Override
+    protected void doStop() throws IOException {
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        timer.stop();
+    }
+}
@@ -169,6 +169,12 @@
                 token: '',
                 operation: '',
                 depends: [],
+                retryPolicy: {
+                    backoff: 'FIXED',
+                    delay: 0,
+                    maxDelay: 0,
+                    jitter: 0
+                },
                 command: {
                     config: {},
                     environment: {}
@@ -204,6 +210,12 @@
                 token: '',
                 operation: '',
                 depends: [],
+                retryPolicy: {
+                    backoff: 'FIXED',
+                    delay: 0,
+                    maxDelay: 0,
+                    jitter: 0
+                },
                 command: {
                     config: {},
                     environment: {}
@@ -305,6 +317,15 @@
         };
         $scope.showOutput = function(run, show){
             $scope.isVisible[run.id] = show;
+            if(show && run.log === undefined){
+                run.log = "";
+                $http.get('/api/dag/run/id/' + $scope.id + '/task/' + run.id + '/log', {
+                    transformResponse: function(data) { return data; }
+                })
+                .then(function(response){
+                    run.log = response.data;
+                });
+            }
         };
         $scope.updateDagRun = function(dag_run){
             $scope.dag_run = dag_run;
@@ -320,14 +341,22 @@
             $scope.dag_run.tasks
             .filter(function(run) { return run.id == event.taskRunId; })
             .forEach(function(run) {
-                $scope.showOutput(run, true);
-                if(!run.operationResult){
-                    run.operationResult = {};
+                if(run.log === undefined){
+                    // loaded log contains the line
+                    $scope.showOutput(run, true);
+                }else{
+                    $scope.isVisible[run.id] = true;
+                    run.log += event.output;
                 }
-                if(!run.operationResult.output){
-                    run.operationResult.output = "";
-                }
-                run.operationResult.output += event.line;
+            });
+        };
+        $scope.reloadTaskRunOutput = function(event){
+            $scope.dag_run.tasks
+            .filter(function(run) { return run.id == event.taskRunId; })
+            .forEach(function(run) {
+                // lines were dropped by server, load them from log
+                run.log = undefined;
+                $scope.showOutput(run, true);
             });
         };
         $scope.updateTaskRunStatus = function(event){
@@ -363,9 +392,12 @@
                 case "DagRunStatusUpdated":
                     $scope.updateDagRunStatus(event);
                     break;
-                case "TaskRunNewOutputLine":
+                case "TaskRunNewOutput":
                     $scope.updateTaskRunOutput(event);
                     break;
+                case "TaskRunOutputDropped":
+                    $scope.reloadTaskRunOutput(event);
+                    break;
                 case "TaskRunStatusUpdated":
                     $scope.updateTaskRunStatus(event);
                     break;
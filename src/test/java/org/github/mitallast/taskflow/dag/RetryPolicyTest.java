@@ -0,0 +1,60 @@
+package org.github.mitallast.taskflow.dag;
+
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryPolicyTest extends BaseTest {
+
+    @Test
+    public void testImmediate() throws Exception {
+        Assert.assertEquals(0, RetryPolicy.IMMEDIATE.delay(1));
+        Assert.assertEquals(0, RetryPolicy.IMMEDIATE.delay(10));
+    }
+
+    @Test
+    public void testFixed() throws Exception {
+        RetryPolicy policy = RetryPolicy.fixed(1000);
+        Assert.assertEquals(1000, policy.delay(1));
+        Assert.assertEquals(1000, policy.delay(5));
+    }
+
+    @Test
+    public void testExponential() throws Exception {
+        RetryPolicy policy = RetryPolicy.exponential(1000, 0);
+        Assert.assertEquals(1000, policy.delay(1));
+        Assert.assertEquals(2000, policy.delay(2));
+        Assert.assertEquals(8000, policy.delay(4));
+        // does not overflow
+        Assert.assertTrue(policy.delay(100) > 0);
+    }
+
+    @Test
+    public void testMaxDelay() throws Exception {
+        RetryPolicy policy = RetryPolicy.exponential(1000, 5000);
+        Assert.assertEquals(4000, policy.delay(3));
+        Assert.assertEquals(5000, policy.delay(4));
+        Assert.assertEquals(5000, policy.delay(100));
+    }
+
+    @Test
+    public void testJitter() throws Exception {
+        RetryPolicy policy = RetryPolicy.exponential(1000, 5000).jitter(0.5);
+        Assert.assertEquals(2000, policy.delay(2, 0));
+        Assert.assertEquals(1500, policy.delay(2, 0.5));
+        Assert.assertEquals(3750, policy.delay(10, 0.5));
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.delay(2);
+            Assert.assertTrue(delay > 1000 && delay <= 2000);
+        }
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        JsonService jsonService = new JsonService(ConfigFactory.defaultReference());
+        RetryPolicy policy = RetryPolicy.exponential(1000, 60000).jitter(0.2);
+        Assert.assertEquals(policy, jsonService.deserialize(jsonService.serialize(policy), RetryPolicy.class));
+    }
+}
@@ -0,0 +1,83 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.Task;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.junit.Test;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class CompiledDagTest extends BaseTest {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    @Test
+    public void testCompile() throws Exception {
+        CompiledDag dag = new CompiledDag(new Dag(1, 1, "dag", ImmutableList.of(
+            new Task(40, 1, "D", of("B", "C"), 1, "dummy", command),
+            new Task(30, 1, "C", of("A"), 1, "dummy", command),
+            new Task(20, 1, "B", of("A"), 1, "dummy", command),
+            new Task(10, 1, "A", of(), 1, "dummy", command)
+        )));
+
+        assertThat(dag.size(), is(4));
+        assertThat(dag.ordinal(10), is(3));
+        assertThat(dag.ordinal(40), is(0));
+        assertThat(dag.ordinal(50), is(-1));
+        assertArrayEquals(new int[]{2, 1}, dag.depends(0));
+        assertArrayEquals(new int[]{1, 2}, dag.dependents(3));
+        assertArrayEquals(new int[]{3, 1, 2, 0}, dag.topologicalOrder());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() throws Exception {
+        new CompiledDag(new Dag(1, 1, "dag", ImmutableList.of(
+            new Task(1, 1, "A", of("C"), 1, "dummy", command),
+            new Task(2, 1, "B", of("A"), 1, "dummy", command),
+            new Task(3, 1, "C", of("B"), 1, "dummy", command)
+        )));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDepends() throws Exception {
+        new CompiledDag(new Dag(1, 1, "dag", ImmutableList.of(
+            new Task(1, 1, "A", of("X"), 1, "dummy", command)
+        )));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        DagRunProcessor processor = new DagRunProcessor();
+        Dag dag = new Dag(1, 1, "dag", ImmutableList.of(new Task(1, 1, "A", of(), 1, "dummy", command)));
+        Dag other = new Dag(1, 1, "dag", ImmutableList.of(new Task(2, 1, "B", of(), 1, "dummy", command)));
+
+        CompiledDag compiled = processor.compile(dag);
+        assertThat(processor.compile(dag) == compiled, is(true));
+        assertThat(processor.compile(other).dag(), is(other));
+    }
+
+    @Test
+    public void testCriticalPath() throws Exception {
+        CompiledDag dag = new CompiledDag(new Dag(1, 1, "dag", ImmutableList.of(
+            new Task(10, 1, "A", of(), 1, "dummy", command),
+            new Task(20, 1, "B", of("A"), 1, "dummy", command),
+            new Task(30, 1, "C", of("A"), 1, "dummy", command),
+            new Task(40, 1, "D", of("B", "C"), 1, "dummy", command),
+            new Task(50, 1, "E", of(), 1, "dummy", command)
+        )));
+
+        long[] path = dag.criticalPath(new long[]{1, 10, 2, 5, 7});
+        // A -> B -> D is the longest path
+        assertArrayEquals(new long[]{16, 15, 7, 5, 7}, path);
+    }
+}
@@ -0,0 +1,105 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.executor.command.*;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.github.mitallast.taskflow.common.Immutable.map;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class DagRunProcessorBatchTest extends BaseTest {
+
+    private static final DagRunProcessor processor = new DagRunProcessor();
+
+    private static final DateTime created = new DateTime();
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    private final Task taskA = new Task(1, 1, "A", of(), 3, "dummy", command);
+    private final Task taskB = new Task(2, 1, "B", of(), 3, "dummy", command);
+    private final Task taskC = new Task(3, 1, "C", of("A", "B"), 3, "dummy", command);
+    private final Task taskD = new Task(4, 1, "D", of(), 1, "dummy", command);
+
+    private final TaskRun taskRunA = new TaskRun(1, taskA, created, null, null, TaskRunStatus.PENDING, null);
+    private final TaskRun taskRunB = new TaskRun(2, taskB, created, null, null, TaskRunStatus.PENDING, null);
+    private final TaskRun taskRunC = new TaskRun(3, taskC, created, null, null, TaskRunStatus.PENDING, null);
+    private final TaskRun taskRunD = new TaskRun(4, taskD, created, null, null, TaskRunStatus.PENDING, null);
+
+    private final DagRun dagRun = new DagRun(1, new Dag(1, 1, "dag", ImmutableList.of(taskA, taskB, taskC, taskD)),
+        created, null, null, DagRunStatus.PENDING, ImmutableList.of(taskRunA, taskRunB, taskRunC, taskRunD)).start();
+
+    @Test
+    public void testExecuteAllReady() throws Exception {
+        ImmutableList<Command> commands = processor.processAll(dagRun);
+
+        assertThat(commands.size(), is(3));
+        commands.forEach(cmd -> assertThat(cmd, is(instanceOf(ExecuteTaskRunCommand.class))));
+        assertThat(taskRunIds(commands), is(ImmutableList.of(1L, 2L, 4L)));
+    }
+
+    @Test
+    public void testExecuteAfterDepends() throws Exception {
+        ImmutableList<Command> commands = processor.processAll(dagRun.success(taskRunA, taskRunB, taskRunD));
+
+        assertThat(commands.size(), is(1));
+        assertThat(commands.get(0), is(instanceOf(ExecuteTaskRunCommand.class)));
+        assertThat(taskRunIds(commands), is(ImmutableList.of(3L)));
+    }
+
+    @Test
+    public void testRetryAndExecute() throws Exception {
+        ImmutableList<Command> commands = processor.processAll(dagRun.failure(taskRunA, taskRunB));
+
+        assertThat(commands.size(), is(3));
+        assertThat(commands.get(0), is(instanceOf(RetryTaskRunCommand.class)));
+        assertThat(commands.get(1), is(instanceOf(RetryTaskRunCommand.class)));
+        assertThat(commands.get(2), is(instanceOf(ExecuteTaskRunCommand.class)));
+        assertThat(taskRunIds(commands), is(ImmutableList.of(1L, 2L, 4L)));
+    }
+
+    @Test
+    public void testRetryDelay() throws Exception {
+        Task taskE = new Task(5, 1, "E", of(), 3, RetryPolicy.exponential(1000, 0), "dummy", command);
+        TaskRun taskRunE = new TaskRun(5, taskE, created, null, null, TaskRunStatus.PENDING, null);
+        DagRun dagRun = new DagRun(2, new Dag(2, 1, "dag", ImmutableList.of(taskA, taskE)),
+            created, null, null, DagRunStatus.PENDING, ImmutableList.of(taskRunA, taskRunE)).start();
+
+        ImmutableList<Command> commands = processor.processAll(dagRun.failure(taskRunA, taskRunE));
+
+        assertThat(commands.size(), is(2));
+        assertThat(((RetryTaskRunCommand) commands.get(0)).delay(), is(0L));
+        assertThat(((RetryTaskRunCommand) commands.get(1)).delay(), is(1000L));
+    }
+
+    @Test
+    public void testCancelAllUnfinished() throws Exception {
+        ImmutableList<Command> commands = processor.processAll(dagRun.start(taskRunA).failure(taskRunD));
+
+        assertThat(commands.size(), is(3));
+        commands.forEach(cmd -> assertThat(cmd, is(instanceOf(CancelTaskRunCommand.class))));
+        assertThat(taskRunIds(commands), is(ImmutableList.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        ImmutableList<Command> commands = processor.processAll(dagRun.success(taskRunA, taskRunB, taskRunC, taskRunD));
+
+        assertThat(commands.size(), is(1));
+        assertThat(commands.get(0), is(instanceOf(SuccessDagRunCommand.class)));
+    }
+
+    private static ImmutableList<Long> taskRunIds(ImmutableList<Command> commands) {
+        return map(commands, cmd -> ((TaskRunCommand) cmd).taskRun().id());
+    }
+}
@@ -12,8 +12,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static com.google.common.collect.ImmutableSet.of;
 import static org.junit.Assert.assertThat;
@@ -1204,7 +1207,47 @@ public class DagRunProcessorTest extends BaseTest {
 
     @Test
     public void testScheduler() throws Exception {
-        Command cmd = processor.process(testDagRun);
+        assertCommand(processor.process(testDagRun));
+    }
+
+    /**
+     * Processor and its compiled dag cache are shared by all lanes of {@link DefaultDagRunExecutor},
+     * so many dag runs of the same dag are processed concurrently.
+     */
+    @Test
+    public void testConcurrentDagRuns() throws Exception {
+        DagRunProcessor shared = new DagRunProcessor();
+        int threads = 8;
+        int runs = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Command>> futures = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                DagRun dagRun = new DagRun(
+                    testDagRun.id() + i,
+                    testDagRun.dag(),
+                    testDagRun.createdDate(),
+                    testDagRun.startDate(),
+                    testDagRun.finishDate(),
+                    testDagRun.status(),
+                    testDagRun.tasks()
+                );
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return shared.process(dagRun);
+                }));
+            }
+            start.countDown();
+            for (Future<Command> future : futures) {
+                assertCommand(future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertCommand(Command cmd) {
         assertThat(cmd, is(instanceOf(expected.getClass())));
 
         if (expected instanceof TaskRunCommand) {
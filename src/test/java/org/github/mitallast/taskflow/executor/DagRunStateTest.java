@@ -0,0 +1,129 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DagRunStateTest extends BaseTest {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    // A <- B, A <- C, (B, C) <- D
+    private final Task taskA = new Task(1, 1, "A", of(), 2, "dummy", command);
+    private final Task taskB = new Task(2, 1, "B", of("A"), 2, "dummy", command);
+    private final Task taskC = new Task(3, 1, "C", of("A"), 2, "dummy", command);
+    private final Task taskD = new Task(4, 1, "D", of("B", "C"), 2, "dummy", command);
+    private final Dag dag = new Dag(1, 1, "dag", ImmutableList.of(taskA, taskB, taskC, taskD));
+
+    private static TaskRun pending(long id, Task task) {
+        return new TaskRun(id, task, new DateTime(), null, null, TaskRunStatus.PENDING, null);
+    }
+
+    private DagRunState state() {
+        return new DagRunState(dag, new DagRun(1, dag, new DateTime(), new DateTime(), null, DagRunStatus.RUNNING, ImmutableList.of(
+            pending(1, taskA),
+            pending(2, taskB),
+            pending(3, taskC),
+            pending(4, taskD)
+        )));
+    }
+
+    @Test
+    public void testInitial() throws Exception {
+        DagRunState state = state();
+
+        assertThat(state.remaining(0), is(0));
+        assertThat(state.remaining(1), is(1));
+        assertThat(state.remaining(2), is(1));
+        assertThat(state.remaining(3), is(2));
+        assertThat(state.nextReady(0), is(0));
+        assertThat(state.nextReady(1), is(-1));
+        assertThat(state.hasUnfinished(), is(true));
+    }
+
+    @Test
+    public void testSuccessDecrementsDependents() throws Exception {
+        DagRunState state = state();
+
+        TaskRun runA = pending(1, taskA).start();
+        state.update(runA);
+        assertThat(state.nextReady(0), is(-1));
+
+        state.update(runA.success());
+        assertThat(state.remaining(1), is(0));
+        assertThat(state.remaining(2), is(0));
+        assertThat(state.remaining(3), is(2));
+        assertThat(state.nextReady(0), is(1));
+        assertThat(state.nextReady(2), is(2));
+        assertThat(state.nextReady(3), is(-1));
+
+        TaskRun runB = pending(2, taskB).start();
+        state.update(runB);
+        state.update(runB.success());
+        assertThat(state.remaining(3), is(1));
+        assertThat(state.nextReady(3), is(-1));
+
+        TaskRun runC = pending(3, taskC).start();
+        state.update(runC);
+        state.update(runC.success());
+        assertThat(state.remaining(3), is(0));
+        assertThat(state.nextReady(0), is(3));
+
+        TaskRun runD = pending(4, taskD).start();
+        state.update(runD);
+        state.update(runD.success());
+        assertThat(state.nextReady(0), is(-1));
+        assertThat(state.hasUnfinished(), is(false));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        DagRunState state = state();
+
+        TaskRun runA = pending(1, taskA).start();
+        state.update(runA);
+        state.update(runA.failure());
+        assertThat(state.nextFailed(0), is(0));
+        assertThat(state.hasFailedOutOfRetry(), is(false));
+        assertThat(state.nextReady(0), is(-1));
+
+        TaskRun retryA = pending(5, taskA);
+        state.update(retryA);
+        assertThat(state.runs(0), is(2));
+        assertThat(state.nextFailed(0), is(-1));
+        assertThat(state.nextReady(0), is(0));
+
+        retryA = retryA.start();
+        state.update(retryA);
+        state.update(retryA.failure());
+        assertThat(state.hasFailedOutOfRetry(), is(true));
+        assertThat(state.remaining(1), is(1));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        DagRunState state = state();
+
+        state.update(pending(1, taskA).cancel());
+        assertThat(state.hasLastRunCanceled(), is(true));
+        assertThat(state.nextReady(0), is(-1));
+        assertThat(state.remaining(1), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOlderTaskRun() throws Exception {
+        state().update(pending(0, taskA));
+    }
+}
@@ -0,0 +1,197 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.github.mitallast.taskflow.operation.OperationResult;
+import org.github.mitallast.taskflow.operation.OperationStatus;
+import org.github.mitallast.taskflow.timer.TimerService;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class DefaultDagRunExecutorTest extends BaseTest {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    private final Config config = ConfigFactory.parseString("executor.dag_run.threads = 4")
+        .withFallback(ConfigFactory.defaultReference());
+
+    private DagService dagService;
+    private DagRunPersistenceService persistenceService;
+    private ExecutorService taskExecutor;
+    private TimerService timer;
+    private TaskRunExecutor taskRunExecutor;
+    private DefaultDagRunExecutor executor;
+
+    // dag run id => count of concurrent dag service calls
+    private ConcurrentMap<Long, AtomicInteger> inFlight;
+    private AtomicInteger concurrencyViolations;
+    private ConcurrentMap<Long, CountDownLatch> completed;
+    // task id => time of failed first run
+    private ConcurrentMap<Long, Long> failOnce;
+
+    @Before
+    public void setUp() throws Exception {
+        dagService = mock(DagService.class);
+        persistenceService = mock(DagRunPersistenceService.class);
+        taskExecutor = Executors.newFixedThreadPool(8);
+        inFlight = new ConcurrentHashMap<>();
+        concurrencyViolations = new AtomicInteger();
+        completed = new ConcurrentHashMap<>();
+        failOnce = new ConcurrentHashMap<>();
+        timer = new TimerService(config);
+
+        when(dagService.startDagRun(any())).thenAnswer(invocation -> serial(invocation.getArgument(0)));
+        when(dagService.startTaskRun(any(), any())).thenAnswer(invocation -> serial(invocation.getArgument(0)));
+        when(dagService.markDagRunSuccess(any())).thenAnswer(invocation -> {
+            DagRun dagRun = invocation.getArgument(0);
+            serial(dagRun);
+            completed.get(dagRun.id()).countDown();
+            return true;
+        });
+
+        taskRunExecutor = new TaskRunExecutor() {
+            @Override
+            public void cancel(DagRun dagRun, TaskRun taskRun) {
+            }
+
+            @Override
+            public void schedule(DagRun dagRun, TaskRun taskRun) {
+                if (failOnce.replace(taskRun.task().id(), 0L, System.nanoTime())) {
+                    taskExecutor.execute(() -> executor.update(
+                        dagRun.id(),
+                        taskRun.failure(new OperationResult(OperationStatus.FAILED, ""))
+                    ));
+                    return;
+                }
+                taskExecutor.execute(() -> executor.update(
+                    dagRun.id(),
+                    taskRun.success(new OperationResult(OperationStatus.SUCCESS, ""))
+                ));
+            }
+        };
+
+        when(persistenceService.findTaskDurations(any(), anyInt())).thenReturn(ImmutableMap.of());
+        DagRunProcessor processor = new DagRunProcessor();
+        TaskPriorityService taskPriority = new TaskPriorityService(config, persistenceService, processor);
+        executor = new DefaultDagRunExecutor(config, dagService, persistenceService, processor, taskPriority, taskRunExecutor, timer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.close();
+        taskExecutor.shutdownNow();
+        timer.close();
+    }
+
+    private boolean serial(DagRun dagRun) throws InterruptedException {
+        AtomicInteger counter = inFlight.computeIfAbsent(dagRun.id(), id -> new AtomicInteger());
+        if (counter.incrementAndGet() > 1) {
+            concurrencyViolations.incrementAndGet();
+        }
+        Thread.sleep(1);
+        counter.decrementAndGet();
+        return true;
+    }
+
+    private DagRun dagRun(long id, int size) {
+        return dagRun(id, size, 1, RetryPolicy.IMMEDIATE);
+    }
+
+    private DagRun dagRun(long id, int size, int retry, RetryPolicy retryPolicy) {
+        ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+        ImmutableList.Builder<TaskRun> taskRuns = ImmutableList.builder();
+        DateTime created = new DateTime();
+        for (int i = 0; i < size; i++) {
+            ImmutableSet<String> depends = i < 2 ? ImmutableSet.of() : ImmutableSet.of("task" + (i - 1), "task" + (i - 2));
+            Task task = new Task(id * 1000 + i, 1, "task" + i, depends, retry, retryPolicy, "dummy", command);
+            tasks.add(task);
+            taskRuns.add(new TaskRun(id * 1000 + i, task, created, null, null, TaskRunStatus.PENDING, null));
+        }
+        Dag dag = new Dag(id, 1, "dag" + id, tasks.build());
+        completed.put(id, new CountDownLatch(1));
+        return new DagRun(id, dag, created, null, null, DagRunStatus.PENDING, taskRuns.build());
+    }
+
+    @Test
+    public void testConcurrentDagRuns() throws Exception {
+        int runs = 32;
+        for (long id = 1; id <= runs; id++) {
+            executor.schedule(dagRun(id, 20));
+        }
+        for (long id = 1; id <= runs; id++) {
+            Assert.assertTrue("dag run " + id + " not completed", completed.get(id).await(30, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals("dag run commands handled concurrently", 0, concurrencyViolations.get());
+        verify(dagService, times(runs)).markDagRunSuccess(any());
+        verify(dagService, times(runs * 20)).startTaskRun(any(), any());
+        // state is kept in memory, never reloaded
+        verify(persistenceService, never()).findDagRun(anyLong());
+    }
+
+    @Test
+    public void testSlowDagRunDoesNotBlockOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DagRun slow = dagRun(1, 1);
+        DagRun fast = dagRun(2, 5);
+
+        doAnswer(invocation -> {
+            DagRun dagRun = invocation.getArgument(0);
+            if (dagRun.id() == slow.id()) {
+                release.await();
+            }
+            return true;
+        }).when(dagService).startDagRun(any());
+
+        executor.schedule(slow);
+        executor.schedule(fast);
+
+        Assert.assertTrue(completed.get(fast.id()).await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(1, completed.get(slow.id()).getCount());
+
+        release.countDown();
+        Assert.assertTrue(completed.get(slow.id()).await(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDelayedRetry() throws Exception {
+        ConcurrentMap<Long, Long> retried = new ConcurrentHashMap<>();
+        when(dagService.retry(any(), any())).thenAnswer(invocation -> {
+            TaskRun taskRun = invocation.getArgument(1);
+            retried.put(taskRun.task().id(), System.nanoTime());
+            return new TaskRun(taskRun.id() + 100, taskRun.task(), new DateTime(), null, null, TaskRunStatus.PENDING, null);
+        });
+
+        DagRun dagRun = dagRun(1, 3, 2, RetryPolicy.fixed(200));
+        failOnce.put(dagRun.dag().tasks().get(0).id(), 0L);
+        executor.schedule(dagRun);
+
+        Assert.assertTrue(completed.get(dagRun.id()).await(30, TimeUnit.SECONDS));
+        long taskId = dagRun.dag().tasks().get(0).id();
+        Assert.assertEquals(1, retried.size());
+        long delay = TimeUnit.NANOSECONDS.toMillis(retried.get(taskId) - failOnce.get(taskId));
+        Assert.assertTrue("retried after " + delay + "ms", delay >= 150);
+        // retry command emitted while waiting for delay is ignored
+        verify(dagService, times(1)).retry(any(), any());
+    }
+}
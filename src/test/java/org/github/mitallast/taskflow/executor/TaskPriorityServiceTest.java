@@ -0,0 +1,65 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.DagRunPersistenceService;
+import org.github.mitallast.taskflow.dag.Task;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TaskPriorityServiceTest extends BaseTest {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    private final Config config = ConfigFactory.parseString("executor.task_run.priority.default_duration = 10s")
+        .withFallback(ConfigFactory.defaultReference());
+
+    @Test
+    public void testLoadAsync() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        DagRunPersistenceService persistenceService = mock(DagRunPersistenceService.class);
+        when(persistenceService.findTaskDurations(eq("dag"), anyInt())).thenAnswer(invocation -> {
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            loaded.countDown();
+            return ImmutableMap.of("A", 1000L);
+        });
+        TaskPriorityService service = new TaskPriorityService(config, persistenceService, new DagRunProcessor());
+        CompiledDag dag = new CompiledDag(new Dag(1, 1, "dag", ImmutableList.of(
+            new Task(20, 1, "B", of("A"), 1, "dummy", command),
+            new Task(10, 1, "A", of(), 1, "dummy", command)
+        )));
+
+        // caller is not blocked by load, default durations are used
+        assertArrayEquals(new long[]{10000, 20000}, service.priorities(dag));
+        assertArrayEquals(new long[]{10000, 20000}, service.priorities(dag));
+
+        loading.countDown();
+        assertTrue(loaded.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (service.priorities(dag)[1] != 11000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertArrayEquals(new long[]{10000, 11000}, service.priorities(dag));
+        // concurrent misses are loaded once
+        verify(persistenceService, times(1)).findTaskDurations(eq("dag"), anyInt());
+    }
+}
@@ -0,0 +1,128 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.EventBus;
+import org.github.mitallast.taskflow.executor.event.DagRunEvent;
+import org.github.mitallast.taskflow.executor.event.TaskRunNewOutput;
+import org.github.mitallast.taskflow.timer.TimerService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TaskRunOutputBatcherTest extends BaseTest {
+
+    private TimerService timer;
+    private List<TaskRunNewOutput> events;
+    private EventBus<DagRunEvent> eventBus;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        timer = new TimerService(ConfigFactory.defaultReference());
+        executor = Executors.newSingleThreadExecutor();
+        events = new CopyOnWriteArrayList<>();
+        eventBus = new EventBus<>();
+        eventBus.subscribe("dag/run/1", (channel, event) -> events.add((TaskRunNewOutput) event));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timer.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBatchBySize() throws Exception {
+        TaskRunOutputBatcher batcher = new TaskRunOutputBatcher("dag/run/1", 1, eventBus, timer, executor, 60000, 16);
+        for (int i = 0; i < 10; i++) {
+            batcher.write("line " + i + "\n");
+        }
+        // 7 bytes per line, batch is published once it reaches 16 bytes
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals(3, events.get(0).lines());
+
+        batcher.flush();
+        Assert.assertEquals(4, events.size());
+        Assert.assertEquals(1, events.get(3).lines());
+        Assert.assertEquals(10, events.stream().mapToInt(TaskRunNewOutput::lines).sum());
+    }
+
+    @Test
+    public void testBatchByTime() throws Exception {
+        TaskRunOutputBatcher batcher = new TaskRunOutputBatcher("dag/run/1", 1, eventBus, timer, executor, 10, 65536);
+        batcher.write("line 1\n");
+        batcher.write("line 2\n");
+        Assert.assertTrue(events.isEmpty());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(2, events.get(0).lines());
+    }
+
+    @Test
+    public void testFlushEmpty() throws Exception {
+        TaskRunOutputBatcher batcher = new TaskRunOutputBatcher("dag/run/1", 1, eventBus, timer, executor, 10, 65536);
+        batcher.flush();
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testFlushByTimeInExecutor() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("dag/run/2", (channel, event) -> threads.add(Thread.currentThread().getName()));
+        TaskRunOutputBatcher batcher = new TaskRunOutputBatcher("dag/run/2", 1, eventBus, timer, executor, 10, 65536);
+        batcher.write("line 1\n");
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (threads.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(1, threads.size());
+        Assert.assertNotEquals("timer", threads.get(0));
+    }
+
+    @Test
+    public void testWriteNotBlockedBySubscriber() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Integer> lines = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("dag/run/2", (channel, event) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lines.add(((TaskRunNewOutput) event).lines());
+        });
+        TaskRunOutputBatcher batcher = new TaskRunOutputBatcher("dag/run/2", 1, eventBus, timer, executor, 60000, 65536);
+        batcher.write("line 1\n");
+        executor.execute(batcher::flush);
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        // subscriber is blocked in publishing thread, writer is not
+        batcher.write("line 2\nline 3\n");
+        batcher.flush();
+        Assert.assertTrue(lines.isEmpty());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (lines.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(ImmutableList.of(1, 2), lines);
+    }
+}
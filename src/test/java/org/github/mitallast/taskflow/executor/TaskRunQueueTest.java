@@ -0,0 +1,272 @@
+package org.github.mitallast.taskflow.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskRunQueueTest extends BaseTest {
+
+    private static final OperationCommand command = new OperationCommand(
+        ConfigFactory.empty(),
+        new OperationEnvironment()
+    );
+
+    private final TaskRunQueue queue = new TaskRunQueue(ConfigFactory.parseString(
+        "executor.task_run.slots = 4\n" +
+            "executor.task_run.limits { \"shell\" = 3, \"docker-container-*\" = 1 }"
+    ));
+
+    @After
+    public void tearDown() throws Exception {
+        queue.close();
+    }
+
+    private static DagRun dagRun(long id) {
+        return new DagRun(id, new Dag(id, 1, "dag" + id, ImmutableList.of()), new DateTime(), null, null, DagRunStatus.RUNNING, ImmutableList.of());
+    }
+
+    private static TaskRun taskRun(long id, String operation) {
+        Task task = new Task(id, 1, "task" + id, ImmutableSet.of(), 1, operation, command);
+        return new TaskRun(id, task, new DateTime(), null, null, TaskRunStatus.RUNNING, null);
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger docker = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger maxDocker = new AtomicInteger();
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+
+        for (long id = 1; id <= 12; id++) {
+            String operation = id % 2 == 0 ? "shell" : (id % 3 == 0 ? "docker-container-wait" : "docker-container-log");
+            boolean isDocker = operation.startsWith("docker");
+            futures.add(queue.submit(dagRun(id), taskRun(id, operation), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                if (isDocker) {
+                    maxDocker.accumulateAndGet(docker.incrementAndGet(), Math::max);
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (isDocker) {
+                    docker.decrementAndGet();
+                }
+                running.decrementAndGet();
+            }));
+        }
+
+        TaskRunQueueStats stats = queue.stats();
+        Assert.assertEquals(4, stats.running());
+        Assert.assertEquals(8, stats.queued());
+        Assert.assertEquals(Integer.valueOf(3), stats.runningByOperation().get("shell"));
+        Assert.assertEquals(Integer.valueOf(1), stats.runningByOperation().get("docker-container-*"));
+
+        // dispatched task runs may not be started yet
+        long deadline = System.currentTimeMillis() + 10000;
+        while (running.get() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        // slot is released after future is completed
+        while (queue.stats().running() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        Assert.assertEquals(4, maxRunning.get());
+        Assert.assertEquals(1, maxDocker.get());
+        Assert.assertEquals(0, queue.stats().queued());
+        Assert.assertEquals(0, queue.stats().running());
+        Assert.assertEquals(12, queue.stats().dispatched());
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        Future<?> blocker = queue.submit(dagRun(100), taskRun(100, "docker-container-wait"), () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        for (long id = 10; id >= 1; id--) {
+            long dagRunId = id;
+            futures.add(queue.submit(dagRun(dagRunId), taskRun(dagRunId, "docker-container-log"), () -> order.add(dagRunId)));
+        }
+        Assert.assertEquals(10, queue.stats().queued());
+
+        release.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(ImmutableList.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), order);
+    }
+
+    @Test
+    public void testTaskRunPriority() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        Future<?> blocker = queue.submit(dagRun(100), taskRun(100, "docker-container-wait"), () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        long[] priorities = {10, 50, 0, 30};
+        for (int i = 0; i < priorities.length; i++) {
+            long taskRunId = i + 1;
+            futures.add(queue.submit(dagRun(2), taskRun(taskRunId, "docker-container-log"), priorities[i], () -> order.add(taskRunId)));
+        }
+        // task runs of older dag run are dispatched first regardless of priority
+        futures.add(queue.submit(dagRun(1), taskRun(5, "docker-container-log"), 0, () -> order.add(5L)));
+
+        release.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(ImmutableList.of(5L, 2L, 4L, 1L, 3L), order);
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskRun running = taskRun(1, "docker-container-wait");
+        TaskRun queued = taskRun(2, "docker-container-wait");
+        AtomicInteger executed = new AtomicInteger();
+
+        CountDownLatch started = new CountDownLatch(1);
+        queue.submit(dagRun(1), running, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Future<?> future = queue.submit(dagRun(2), queued, executed::incrementAndGet);
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(queue.remove(running));
+        Assert.assertTrue(queue.remove(queued));
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertEquals(0, queue.stats().queued());
+
+        release.countDown();
+        Assert.assertEquals(0, executed.get());
+    }
+
+    @Test
+    public void testRemoveDispatched() throws Exception {
+        // single executor thread is busy, so dispatched task run waits for start
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskRunQueue queue = new TaskRunQueue(ConfigFactory.parseString(
+            "executor.task_run.slots = 4\n" +
+                "executor.task_run.limits {}"
+        ), executor);
+        try {
+            AtomicInteger executed = new AtomicInteger();
+            TaskRun taskRun = taskRun(1, "shell");
+            Future<?> future = queue.submit(dagRun(1), taskRun, executed::incrementAndGet);
+            Assert.assertEquals(0, queue.stats().queued());
+            Assert.assertEquals(1, queue.stats().running());
+
+            Assert.assertTrue(queue.remove(taskRun));
+            Assert.assertTrue(future.isCancelled());
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (queue.stats().running() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(0, queue.stats().running());
+            Assert.assertEquals(0, executed.get());
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void testAsyncLimit() throws Exception {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        queue.submitAsync(dagRun(1), taskRun(1, "docker-container-wait"), 0, () -> {
+            started.incrementAndGet();
+            return first;
+        });
+        queue.submitAsync(dagRun(2), taskRun(2, "docker-container-wait"), 0, () -> {
+            started.incrementAndGet();
+            return second;
+        });
+
+        // async operation takes no slot, but holds operation limit while waiting
+        long deadline = System.currentTimeMillis() + 10000;
+        while (started.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        TaskRunQueueStats stats = queue.stats();
+        Assert.assertEquals(0, stats.running());
+        Assert.assertEquals(1, stats.runningAsync());
+        Assert.assertEquals(1, stats.queued());
+        Assert.assertEquals(Integer.valueOf(1), stats.runningByOperation().get("docker-container-*"));
+
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        for (long id = 10; id < 14; id++) {
+            futures.add(queue.submit(dagRun(id), taskRun(id, "other"), () -> {
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(1, started.get());
+
+        first.complete(null);
+        while (started.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(2, started.get());
+        Assert.assertEquals(0, queue.stats().queued());
+
+        second.complete(null);
+        while (queue.stats().runningAsync() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(0, queue.stats().runningAsync());
+        Assert.assertTrue(queue.stats().runningByOperation().isEmpty());
+    }
+}
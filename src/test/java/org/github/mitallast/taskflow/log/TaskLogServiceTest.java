@@ -0,0 +1,93 @@
+package org.github.mitallast.taskflow.log;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+
+public class TaskLogServiceTest extends BaseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TaskLogService taskLogService;
+
+    @Before
+    public void setUp() throws Exception {
+        Config config = ConfigFactory.parseString(
+            "log.directory = \"" + folder.getRoot().getAbsolutePath() + "\"\n" +
+                "log.chunk_size = 16"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+        taskLogService = new TaskLogService(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskLogService.close();
+    }
+
+    @Test
+    public void testAppendInChunks() throws Exception {
+        TaskLogWriter writer = taskLogService.writer(1);
+        writer.append("line 1\n");
+        writer.append("line 2\n");
+        // buffered chunk is not flushed yet
+        Assert.assertEquals(0, Files.size(taskLogService.path(1)));
+        Assert.assertEquals(14, taskLogService.size(1));
+
+        writer.append("line 3\n");
+        Assert.assertEquals(14, Files.size(taskLogService.path(1)));
+        Assert.assertEquals(21, taskLogService.size(1));
+
+        // read over flushed file and buffered chunk
+        TaskLogChunk chunk = taskLogService.read(1, 7, 100);
+        Assert.assertEquals("line 2\nline 3\n", chunk.text());
+        Assert.assertEquals(21, chunk.nextOffset());
+        Assert.assertFalse(chunk.complete());
+
+        taskLogService.close(1);
+        Assert.assertFalse(taskLogService.isOpen(1));
+        Assert.assertEquals(21, Files.size(taskLogService.path(1)));
+    }
+
+    @Test
+    public void testLargeLine() throws Exception {
+        TaskLogWriter writer = taskLogService.writer(2);
+        writer.append("short\n");
+        writer.append("line longer than chunk size\n");
+        Assert.assertEquals(34, Files.size(taskLogService.path(2)));
+        Assert.assertEquals("short\nline longer than chunk size\n", taskLogService.read(2, 0, 100).text());
+    }
+
+    @Test
+    public void testReadRange() throws Exception {
+        TaskLogWriter writer = taskLogService.writer(3);
+        for (int i = 0; i < 10; i++) {
+            writer.append("line " + i + "\n");
+        }
+        taskLogService.close(3);
+
+        TaskLogChunk chunk = taskLogService.read(3, 14, 7);
+        Assert.assertEquals("line 2\n", chunk.text());
+        Assert.assertEquals(70, chunk.size());
+        Assert.assertTrue(chunk.complete());
+
+        // range is bounded by log size
+        Assert.assertEquals("line 9\n", taskLogService.read(3, 63, 100).text());
+        Assert.assertEquals(0, taskLogService.read(3, 100, 100).data().length);
+    }
+
+    @Test
+    public void testMissingLog() throws Exception {
+        TaskLogChunk chunk = taskLogService.read(4, 0, 100);
+        Assert.assertEquals(0, chunk.size());
+        Assert.assertTrue(chunk.complete());
+    }
+}
@@ -0,0 +1,139 @@
+package org.github.mitallast.taskflow.notification;
+
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+public class NotificationServiceTest extends BaseTest {
+
+    private NotificationService notificationService;
+
+    private NotificationService notificationService(NotificationProvider provider, String window) throws Exception {
+        Config config = ConfigFactory.parseString(
+            "notification.window = " + window + "\n" +
+                "notification.retry.attempts = 3\n" +
+                "notification.retry.backoff = 10ms"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+        notificationService = new NotificationService(config, ImmutableSet.of(provider));
+        notificationService.start();
+        return notificationService;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        notificationService.close();
+    }
+
+    private static void await(List<?> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testNotifyDoesNotBlock() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Notification> sent = new CopyOnWriteArrayList<>();
+        NotificationService service = notificationService(new TestProvider(notification -> {
+            release.await();
+            sent.add(notification);
+        }), "0ms");
+
+        long start = System.currentTimeMillis();
+        service.notify(new Notification("first", "text"));
+        service.notify(new Notification("second", "text"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+
+        release.countDown();
+        await(sent, 1);
+        Assert.assertFalse(sent.isEmpty());
+    }
+
+    @Test
+    public void testDigest() throws Exception {
+        List<Notification> sent = new CopyOnWriteArrayList<>();
+        NotificationService service = notificationService(new TestProvider(sent::add), "200ms");
+
+        service.notify(new Notification("first", "text 1"));
+        service.notify(new Notification("second", "text 2"));
+        service.notify(new Notification("third", "text 3"));
+        await(sent, 1);
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        Assert.assertEquals(1, sent.size());
+        assertThat(sent.get(0).subject(), containsString("3 notifications"));
+        assertThat(sent.get(0).text(), containsString("text 2"));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Notification> sent = new CopyOnWriteArrayList<>();
+        NotificationService service = notificationService(new TestProvider(notification -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("unavailable");
+            }
+            sent.add(notification);
+        }), "0ms");
+
+        service.notify(new Notification("first", "text"));
+        await(sent, 1);
+        Assert.assertEquals(1, sent.size());
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testDropAfterMaxAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Notification> sent = new CopyOnWriteArrayList<>();
+        NotificationService service = notificationService(new TestProvider(notification -> {
+            if (notification.subject().equals("first")) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("unavailable");
+            }
+            sent.add(notification);
+        }), "0ms");
+
+        service.notify(new Notification("first", "text"));
+        service.notify(new Notification("second", "text"));
+        await(sent, 1);
+        Assert.assertEquals("second", sent.get(0).subject());
+        Assert.assertEquals(3, calls.get());
+    }
+
+    private interface Send {
+        void send(Notification notification) throws Exception;
+    }
+
+    private static class TestProvider implements NotificationProvider {
+        private final Send send;
+
+        private TestProvider(Send send) {
+            this.send = send;
+        }
+
+        @Override
+        public String id() {
+            return "test";
+        }
+
+        @Override
+        public void notify(Notification notification) throws Exception {
+            send.send(notification);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.github.mitallast.taskflow.operation;
+
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.timer.TimerService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OperationPollerTest extends BaseTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final TimerService timer = new TimerService(ConfigFactory.defaultReference());
+    private final OperationContext context = new OperationContext(executor, timer, output -> {
+    });
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        timer.close();
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        OperationResult result = OperationPoller.poll(context, 1, 10, TimeUnit.SECONDS, () -> {
+            if (checks.incrementAndGet() < 3) {
+                return null;
+            }
+            return new OperationResult(OperationStatus.SUCCESS, "");
+        }).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(OperationStatus.SUCCESS, result.status());
+        Assert.assertEquals(3, checks.get());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        OperationResult result = OperationPoller.poll(context, 10, 50, TimeUnit.MILLISECONDS, () -> null)
+            .get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(OperationStatus.FAILED, result.status());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        CompletableFuture<OperationResult> future = OperationPoller.poll(context, 10, 10, TimeUnit.SECONDS, () -> {
+            checks.incrementAndGet();
+            return null;
+        });
+        Thread.sleep(50);
+        future.cancel(true);
+        int canceled = checks.get();
+        Thread.sleep(100);
+        Assert.assertTrue(checks.get() <= canceled + 1);
+    }
+
+    @Test
+    public void testThousandsOfSensors() throws Exception {
+        // sensors wait in timer, without holding execution threads
+        List<CompletableFuture<OperationResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            AtomicInteger checks = new AtomicInteger();
+            futures.add(OperationPoller.poll(context, 10, 60000, TimeUnit.MILLISECONDS, () ->
+                checks.incrementAndGet() < 5 ? null : new OperationResult(OperationStatus.SUCCESS, "")
+            ));
+        }
+        for (CompletableFuture<OperationResult> future : futures) {
+            Assert.assertEquals(OperationStatus.SUCCESS, future.get(30, TimeUnit.SECONDS).status());
+        }
+        Assert.assertTrue(((ThreadPoolExecutor) executor).getLargestPoolSize() < 5000);
+    }
+}
@@ -0,0 +1,44 @@
+package org.github.mitallast.taskflow.operation;
+
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OutputCollectorTest extends BaseTest {
+
+    @Test
+    public void testNotTruncated() throws Exception {
+        OutputCollector collector = new OutputCollector(8, 8);
+        collector.write("line 1\n");
+        collector.write("line 2\n");
+        Assert.assertFalse(collector.truncated());
+        Assert.assertEquals("line 1\nline 2\n", collector.toString());
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        OutputCollector collector = new OutputCollector(7, 14);
+        for (int i = 0; i < 10; i++) {
+            collector.write("line " + i + "\n");
+        }
+        Assert.assertTrue(collector.truncated());
+        Assert.assertEquals(70, collector.size());
+        Assert.assertEquals("line 0\n\n... 49 bytes truncated ...\nline 8\nline 9\n", collector.toString());
+    }
+
+    @Test
+    public void testLargeChunk() throws Exception {
+        OutputCollector collector = new OutputCollector(4, 4);
+        collector.write("0123456789");
+        Assert.assertEquals("0123\n... 2 bytes truncated ...\n6789", collector.toString());
+        collector.write("ab");
+        Assert.assertEquals("0123\n... 4 bytes truncated ...\n89ab", collector.toString());
+    }
+
+    @Test
+    public void testHeadOnly() throws Exception {
+        OutputCollector collector = new OutputCollector(4, 0);
+        collector.write("0123456789");
+        Assert.assertEquals("0123\n... 6 bytes truncated ...\n", collector.toString());
+    }
+}
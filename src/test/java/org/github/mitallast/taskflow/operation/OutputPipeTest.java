@@ -0,0 +1,90 @@
+package org.github.mitallast.taskflow.operation;
+
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutputPipeTest extends BaseTest {
+
+    private final List<String> chunks = new ArrayList<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final OutputSink sink = output -> {
+        byte[] data = new byte[output.remaining()];
+        output.get(data);
+        bytes.write(data, 0, data.length);
+        chunks.add(new String(data, StandardCharsets.UTF_8));
+    };
+
+    @Test
+    public void testCompleteLines() throws Exception {
+        OutputPipe pipe = new OutputPipe(16, StandardCharsets.UTF_8);
+        long size = pipe.pipe(stream("line 1\nline 2\nline 3\nline 4", StandardCharsets.UTF_8), sink);
+        Assert.assertEquals(27, size);
+        Assert.assertEquals("line 1\nline 2\nline 3\nline 4", output());
+        // each chunk except the last one ends with line break
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            Assert.assertTrue(chunks.get(i).endsWith("\n"));
+        }
+        Assert.assertEquals("line 4", chunks.get(chunks.size() - 1));
+    }
+
+    @Test
+    public void testLineLongerThanBuffer() throws Exception {
+        OutputPipe pipe = new OutputPipe(8, StandardCharsets.UTF_8);
+        pipe.pipe(stream("0123456789abcdef\nend\n", StandardCharsets.UTF_8), sink);
+        Assert.assertEquals("0123456789abcdef\nend\n", output());
+        Assert.assertEquals("01234567", chunks.get(0));
+    }
+
+    @Test
+    public void testMultiByteNotSplit() throws Exception {
+        OutputPipe pipe = new OutputPipe(8, StandardCharsets.UTF_8);
+        String text = "абвгдежзийклмнопрст\n";
+        pipe.pipe(stream(text, StandardCharsets.UTF_8), sink);
+        Assert.assertEquals(text, output());
+        for (String chunk : chunks) {
+            Assert.assertFalse(chunk.contains("�"));
+        }
+    }
+
+    @Test
+    public void testTranscode() throws Exception {
+        Charset charset = Charset.forName("windows-1251");
+        OutputPipe pipe = new OutputPipe(8, charset);
+        String text = "строка 1\nстрока 2\nочень длинная строка\n";
+        pipe.pipe(stream(text, charset), sink);
+        Assert.assertEquals(text, output());
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        OutputPipe pipe = new OutputPipe(8, StandardCharsets.UTF_8);
+        pipe.pipe(stream("first", StandardCharsets.UTF_8), sink);
+        pipe.pipe(stream("second\n", StandardCharsets.UTF_8), sink);
+        Assert.assertEquals("firstsecond\n", output());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        OutputPipe pipe = new OutputPipe(8, StandardCharsets.UTF_8);
+        Assert.assertEquals(0, pipe.pipe(stream("", StandardCharsets.UTF_8), sink));
+        Assert.assertTrue(chunks.isEmpty());
+    }
+
+    private String output() {
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream stream(String text, Charset charset) {
+        return new ByteArrayInputStream(text.getBytes(charset));
+    }
+}
@@ -0,0 +1,123 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.RetryPolicy;
+import org.github.mitallast.taskflow.dag.Task;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachedDagPersistenceServiceTest extends BaseTest {
+
+    private Config config;
+    private PersistenceService persistence;
+    private DefaultDagPersistenceService defaultDagPersistence;
+    private CachedDagPersistenceService dagPersistence;
+
+    @Before
+    public void setUp() throws Exception {
+        config = ConfigFactory.parseString(
+            "persistence.url = \"jdbc:h2:mem:dag_cache;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1\"\n" +
+                "persistence.username = \"\"\n" +
+                "persistence.cleanup = true"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+
+        persistence = new PersistenceService(config);
+        new SchemaService(config, persistence);
+        defaultDagPersistence = H2DagPersistenceService.create(config, persistence, new JsonService(config));
+        dagPersistence = new CachedDagPersistenceService(config, defaultDagPersistence);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        persistence.close();
+    }
+
+    private static Dag dag(String token) {
+        OperationCommand command = new OperationCommand(ConfigFactory.empty(), new OperationEnvironment());
+        return new Dag(0, 0, token, ImmutableList.of(
+            new Task(0, 0, "A", ImmutableSet.of(), 1, "dummy", command),
+            new Task(0, 0, "B", ImmutableSet.of("A"), 1, "dummy", command)
+        ));
+    }
+
+    @Test
+    public void testFindById() throws Exception {
+        Dag dag = dagPersistence.createDag(dag("dag"));
+
+        Assert.assertSame(dag, dagPersistence.findDagById(dag.id()).get());
+        Assert.assertSame(dag, dagPersistence.findDagById(dag.id()).get());
+        Assert.assertFalse(dagPersistence.findDagById(dag.id() + 100).isPresent());
+
+        DagCacheStats stats = dagPersistence.stats();
+        Assert.assertEquals(2, stats.hits());
+        Assert.assertEquals(1, stats.misses());
+    }
+
+    @Test
+    public void testFindByIds() throws Exception {
+        Dag dag1 = dagPersistence.createDag(dag("dag1"));
+        Dag dag2 = dagPersistence.createDag(dag("dag2"));
+        Dag dag3 = dagPersistence.createDag(dag("dag3"));
+
+        ImmutableList<Dag> found = dagPersistence.findDagByIds(ImmutableList.of(dag3.id(), dag1.id()));
+        Assert.assertEquals(ImmutableList.of(dag1, dag3), found);
+
+        // not cached dag is loaded with tasks
+        Assert.assertTrue(dagPersistence.findDagById(dag2.id()).isPresent());
+        Assert.assertEquals(2, dagPersistence.findDagByIds(ImmutableList.of(dag2.id())).get(0).tasks().size());
+    }
+
+    @Test
+    public void testFindByDuplicateIds() throws Exception {
+        DefaultDagPersistenceService delegate = spy(defaultDagPersistence);
+        CachedDagPersistenceService cached = new CachedDagPersistenceService(config, delegate);
+        Dag dag1 = cached.createDag(dag("dag1"));
+        Dag dag2 = cached.createDag(dag("dag2"));
+
+        ImmutableList<Dag> found = cached.findDagByIds(ImmutableList.of(dag2.id(), dag1.id(), dag2.id(), dag2.id()));
+        Assert.assertEquals(ImmutableList.of(dag1, dag2), found);
+        verify(delegate, never()).findDagByIds(any());
+    }
+
+    @Test
+    public void testFindByTokenAfterUpdate() throws Exception {
+        Dag dag = dagPersistence.createDag(dag("dag"));
+        Assert.assertEquals(dag.id(), dagPersistence.findDagByToken("dag").get().id());
+
+        Dag updated = dagPersistence.updateDag(dag);
+        Assert.assertEquals(1, updated.version());
+        Assert.assertEquals(updated.id(), dagPersistence.findDagByToken("dag").get().id());
+
+        // previous version is still available by id
+        Assert.assertEquals(0, dagPersistence.findDagById(dag.id()).get().version());
+        Assert.assertEquals(2, dagPersistence.stats().tokenHits());
+    }
+
+    @Test
+    public void testRetryPolicy() throws Exception {
+        OperationCommand command = new OperationCommand(ConfigFactory.empty(), new OperationEnvironment());
+        RetryPolicy policy = RetryPolicy.exponential(1000, 60000).jitter(0.5);
+        Dag dag = dagPersistence.createDag(new Dag(0, 0, "dag", ImmutableList.of(
+            new Task("A", ImmutableSet.of(), 3, policy, "dummy", command),
+            new Task("B", ImmutableSet.of("A"), 1, "dummy", command)
+        )));
+
+        Dag loaded = defaultDagPersistence.findDagById(dag.id()).get();
+        Assert.assertEquals(policy, loaded.tasks().get(0).retryPolicy());
+        Assert.assertEquals(RetryPolicy.IMMEDIATE, loaded.tasks().get(1).retryPolicy());
+        Assert.assertEquals(dag, loaded);
+    }
+}
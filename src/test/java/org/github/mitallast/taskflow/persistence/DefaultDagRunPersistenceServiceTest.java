@@ -0,0 +1,153 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.github.mitallast.taskflow.operation.OperationResult;
+import org.github.mitallast.taskflow.operation.OperationStatus;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.jooq.DSLContext;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.stream.Collectors;
+
+public class DefaultDagRunPersistenceServiceTest extends BaseTest {
+
+    private PersistenceService persistence;
+    private DefaultDagPersistenceService dagPersistence;
+    private DefaultDagRunPersistenceService dagRunPersistence;
+
+    @Before
+    public void setUp() throws Exception {
+        Config config = ConfigFactory.parseString(
+            "persistence.url = \"jdbc:h2:mem:dag_run;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1\"\n" +
+                "persistence.username = \"\"\n" +
+                "persistence.cleanup = true"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+
+        persistence = new PersistenceService(config);
+        new SchemaService(config, persistence);
+        dagPersistence = H2DagPersistenceService.create(config, persistence, new JsonService(config));
+        dagRunPersistence = new DefaultDagRunPersistenceService(config, persistence, dagPersistence);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        persistence.close();
+    }
+
+    private Dag dag(String token) {
+        OperationCommand command = new OperationCommand(ConfigFactory.empty(), new OperationEnvironment());
+        return dagPersistence.createDag(new Dag(0, 0, token, ImmutableList.of(
+            new Task(0, 0, "A", ImmutableSet.of(), 1, "dummy", command)
+        )));
+    }
+
+    private static DagRunQuery query(Long before, int limit) {
+        return new DagRunQuery(before, limit, null, null, null, null, true);
+    }
+
+    private static ImmutableList<Long> ids(ImmutableList<DagRun> dagRuns) {
+        return ImmutableList.copyOf(dagRuns.stream().map(DagRun::id).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        Dag dag = dag("dag");
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dagRunPersistence.createDagRun(dag).id();
+        }
+
+        ImmutableList<DagRun> first = dagRunPersistence.findDagRuns(query(null, 2));
+        Assert.assertEquals(ImmutableList.of(ids[4], ids[3]), ids(first));
+        Assert.assertEquals(1, first.get(0).tasks().size());
+
+        ImmutableList<DagRun> second = dagRunPersistence.findDagRuns(query(ids[3], 2));
+        Assert.assertEquals(ImmutableList.of(ids[2], ids[1]), ids(second));
+
+        ImmutableList<DagRun> last = dagRunPersistence.findDagRuns(query(ids[1], 2));
+        Assert.assertEquals(ImmutableList.of(ids[0]), ids(last));
+
+        Assert.assertTrue(dagRunPersistence.findDagRuns(query(ids[0], 2)).isEmpty());
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        Dag dag1 = dag("dag1");
+        Dag dag2 = dag("dag2");
+        DagRun run1 = dagRunPersistence.createDagRun(dag1);
+        DagRun run2 = dagRunPersistence.createDagRun(dag2);
+        DagRun run3 = dagRunPersistence.createDagRun(dag2);
+        Assert.assertTrue(dagRunPersistence.startDagRun(run3.id()));
+
+        Assert.assertEquals(ImmutableList.of(run3.id(), run2.id()),
+            ids(dagRunPersistence.findDagRuns(new DagRunQuery(null, 10, null, "dag2", null, null, false))));
+        Assert.assertEquals(ImmutableList.of(run2.id(), run1.id()),
+            ids(dagRunPersistence.findDagRuns(new DagRunQuery(null, 10, DagRunStatus.PENDING, null, null, null, false))));
+        Assert.assertEquals(ImmutableList.of(run3.id()),
+            ids(dagRunPersistence.findDagRuns(new DagRunQuery(null, 10, DagRunStatus.RUNNING, "dag2", null, null, false))));
+
+        DateTime future = DateTime.now().plusDays(1);
+        Assert.assertTrue(dagRunPersistence.findDagRuns(new DagRunQuery(null, 10, null, null, future, null, false)).isEmpty());
+        Assert.assertEquals(3, dagRunPersistence.findDagRuns(new DagRunQuery(null, 10, null, null, null, future, false)).size());
+    }
+
+    @Test
+    public void testWithoutOutput() throws Exception {
+        DagRun dagRun = dagRunPersistence.createDagRun(dag("dag"));
+        long taskRunId = dagRun.tasks().get(0).id();
+        Assert.assertTrue(dagRunPersistence.startTaskRun(taskRunId));
+        Assert.assertTrue(dagRunPersistence.markTaskRunSuccess(taskRunId, new OperationResult(OperationStatus.SUCCESS, "output")));
+
+        OperationResult withOutput = dagRunPersistence.findDagRuns(query(null, 1)).get(0).tasks().get(0).operationResult();
+        Assert.assertEquals("output", withOutput.output());
+
+        OperationResult withoutOutput = dagRunPersistence.findDagRuns(new DagRunQuery(null, 1, null, null, null, null, false))
+            .get(0).tasks().get(0).operationResult();
+        Assert.assertEquals(OperationStatus.SUCCESS, withoutOutput.status());
+        Assert.assertEquals("", withoutOutput.output());
+    }
+
+    @Test
+    public void testTaskDurations() throws Exception {
+        Dag dag = dag("dag");
+        finish(dagRunPersistence.createDagRun(dag).tasks().get(0), 5000, true);
+        finish(dagRunPersistence.createDagRun(dag).tasks().get(0), 3000, true);
+        finish(dagRunPersistence.createDagRun(dag).tasks().get(0), 100000, false);
+        dagRunPersistence.createDagRun(dag);
+
+        Assert.assertEquals(Long.valueOf(4000), dagRunPersistence.findTaskDurations("dag", 10).get("A"));
+        // only last dag runs are used
+        Assert.assertEquals(Long.valueOf(3000), dagRunPersistence.findTaskDurations("dag", 3).get("A"));
+        Assert.assertTrue(dagRunPersistence.findTaskDurations("dag", 2).isEmpty());
+        Assert.assertTrue(dagRunPersistence.findTaskDurations("unknown", 10).isEmpty());
+    }
+
+    private void finish(TaskRun taskRun, long duration, boolean success) {
+        Assert.assertTrue(dagRunPersistence.startTaskRun(taskRun.id()));
+        if (success) {
+            Assert.assertTrue(dagRunPersistence.markTaskRunSuccess(taskRun.id(), new OperationResult(OperationStatus.SUCCESS, "")));
+        } else {
+            Assert.assertTrue(dagRunPersistence.markTaskRunFailed(taskRun.id(), new OperationResult(OperationStatus.FAILED, "")));
+        }
+        long start = System.currentTimeMillis();
+        try (DSLContext context = persistence.context()) {
+            context.update(Schema.table.task_run)
+                .set(Schema.field.start_date, new Timestamp(start))
+                .set(Schema.field.finish_date, new Timestamp(start + duration))
+                .where(Schema.field.id.eq(taskRun.id()))
+                .execute();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.typesafe.config.Config;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.persistence.Schema.field;
+import org.github.mitallast.taskflow.persistence.Schema.table;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import static org.jooq.impl.DSL.val;
+
+/**
+ * Dag persistence on embedded H2 of tests and benchmarks, H2 has no insert on conflict.
+ * Schedule is inserted if not exists, which is fine for single writer.
+ */
+public class H2DagPersistenceService extends DefaultDagPersistenceService {
+
+    public H2DagPersistenceService(Config config, PersistenceService persistence, JsonService jsonService) {
+        super(config, persistence, jsonService);
+    }
+
+    /**
+     * @return H2 dag persistence if persistence url is H2 one, default otherwise
+     */
+    public static DefaultDagPersistenceService create(Config config, PersistenceService persistence, JsonService jsonService) {
+        if (config.getString("persistence.url").startsWith("jdbc:h2:")) {
+            return new H2DagPersistenceService(config, persistence, jsonService);
+        }
+        return new DefaultDagPersistenceService(config, persistence, jsonService);
+    }
+
+    @Override
+    void insertSchedule(DSLContext context, Dag dag) {
+        context
+            .insertInto(
+                table.dag_schedule,
+                field.token,
+                field.enabled,
+                field.cron_expression
+            )
+            .select(DSL.select(
+                val(dag.token()),
+                val(false),
+                DSL.castNull(field.cron_expression)
+            ).whereNotExists(
+                DSL.selectOne()
+                    .from(table.dag_schedule)
+                    .where(field.token.eq(dag.token()))
+            ))
+            .execute();
+    }
+}
@@ -0,0 +1,209 @@
+package org.github.mitallast.taskflow.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.dag.Dag;
+import org.github.mitallast.taskflow.dag.Task;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class SchemaServiceTest extends BaseTest {
+
+    private PersistenceService persistence;
+    private SchemaService schemaService;
+
+    @Before
+    public void setUp() throws Exception {
+        Config config = ConfigFactory.parseString(
+            "persistence.url = \"jdbc:h2:mem:schema;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1\"\n" +
+                "persistence.username = \"\"\n" +
+                "persistence.cleanup = true"
+        ).withFallback(ConfigFactory.defaultReference()).resolve();
+
+        persistence = new PersistenceService(config);
+        schemaService = new SchemaService(config, persistence);
+        Assert.assertEquals(ImmutableList.of(2, 3), schemaService.pending());
+        schemaService.processOnline();
+        seed(config, persistence);
+    }
+
+    private static void seed(Config config, PersistenceService persistence) throws Exception {
+        OperationCommand command = new OperationCommand(ConfigFactory.empty(), new OperationEnvironment());
+        DefaultDagPersistenceService dagPersistence = H2DagPersistenceService.create(config, persistence, new JsonService(config));
+        DefaultDagRunPersistenceService dagRunPersistence = new DefaultDagRunPersistenceService(config, persistence, dagPersistence);
+        for (int i = 0; i < 10; i++) {
+            Dag dag = dagPersistence.createDag(new Dag(0, 0, "dag" + i, ImmutableList.of(
+                new Task(0, 0, "A", ImmutableSet.of(), 1, "dummy", command),
+                new Task(0, 0, "B", ImmutableSet.of("A"), 1, "dummy", command)
+            )));
+            for (int j = 0; j < 20; j++) {
+                dagRunPersistence.createDagRun(dag);
+            }
+        }
+        try (DSLContext context = persistence.context()) {
+            context.execute("ANALYZE");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        schemaService.close();
+        persistence.close();
+    }
+
+    private String explain(Query query) {
+        try (DSLContext context = persistence.context()) {
+            return explain(context, query);
+        }
+    }
+
+    /**
+     * PostgreSQL returns plan line per row, H2 returns single row
+     */
+    private String explain(DSLContext context, Query query) {
+        String plan = context.fetch("EXPLAIN " + query.getSQL(ParamType.INLINED))
+            .getValues(0, String.class)
+            .stream()
+            .collect(Collectors.joining("\n"));
+        logger.info("plan: {}", plan);
+        return plan;
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        Assert.assertEquals(4, schemaService.version());
+        Assert.assertTrue(schemaService.pending().isEmpty());
+
+        // migrations are applied once
+        schemaService.process();
+        schemaService.processOnline();
+        Assert.assertEquals(4, schemaService.version());
+        try (DSLContext context = persistence.context()) {
+            Assert.assertEquals(4, context.fetchCount(Schema.table.schema_version));
+        }
+    }
+
+    @Test
+    public void testOnlineMigrationsOnStart() throws Exception {
+        try (DSLContext context = persistence.context()) {
+            context.deleteFrom(Schema.table.schema_version).where(Schema.field.version.in(2, 3)).execute();
+        }
+        Assert.assertEquals(ImmutableList.of(2, 3), schemaService.pending());
+
+        schemaService.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!schemaService.pending().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(schemaService.pending().isEmpty());
+    }
+
+    @Test
+    public void testTaskRunByDagRun() throws Exception {
+        try (DSLContext context = persistence.context()) {
+            assertIndexLookup(explain(context.selectFrom(Schema.table.task_run).where(Schema.field.dag_run_id.in(1L, 2L))));
+        }
+    }
+
+    @Test
+    public void testTaskByDag() throws Exception {
+        try (DSLContext context = persistence.context()) {
+            assertIndexLookup(explain(context.selectFrom(Schema.table.task).where(Schema.field.dag_id.eq(1L))));
+        }
+    }
+
+    @Test
+    public void testPendingDagRuns() throws Exception {
+        try (DSLContext context = persistence.context()) {
+            String plan = explain(DefaultDagRunPersistenceService.select(context, 0, DefaultDagRunPersistenceService.pending()));
+            assertIndexLookup(plan);
+            assertThat(plan, containsString("dag_run_active"));
+        }
+    }
+
+    /**
+     * H2 has no partial indexes, so partial index dag_run_active is checked against PostgreSQL
+     * set by TEST_DB_URL, TEST_DB_USER and TEST_DB_PASSWORD. Tables of this database are dropped.
+     */
+    @Test
+    public void testPendingDagRunsPostgres() throws Exception {
+        String url = System.getenv("TEST_DB_URL");
+        Assume.assumeTrue("TEST_DB_URL is not set", url != null && url.startsWith("jdbc:postgresql:"));
+        Config config = ConfigFactory.parseMap(ImmutableMap.of(
+            "persistence.url", url,
+            "persistence.username", Optional.ofNullable(System.getenv("TEST_DB_USER")).orElse(""),
+            "persistence.password", Optional.ofNullable(System.getenv("TEST_DB_PASSWORD")).orElse(""),
+            "persistence.cleanup", true
+        )).withFallback(ConfigFactory.defaultReference()).resolve();
+
+        PersistenceService postgres = new PersistenceService(config);
+        SchemaService postgresSchema = new SchemaService(config, postgres);
+        try {
+            postgresSchema.processOnline();
+            seed(config, postgres);
+            try (DSLContext context = postgres.context()) {
+                String plan = context.transactionResult(conf -> {
+                    // small table is cheaper to scan, planner is forced to use index if it matches the query
+                    DSL.using(conf).execute("SET LOCAL enable_seqscan = off");
+                    return explain(DSL.using(conf), DefaultDagRunPersistenceService.select(DSL.using(conf), 0, DefaultDagRunPersistenceService.pending()));
+                });
+                assertIndexLookup(plan);
+                assertThat(plan, containsString("dag_run_active"));
+            }
+        } finally {
+            postgresSchema.close();
+            postgres.close();
+        }
+    }
+
+    @Test
+    public void testIndexes() throws Exception {
+        assertThat(indexes("task_run").contains("task_run_dag_run_id"), is(true));
+        assertThat(indexes("dag_run").contains("dag_run_active"), is(true));
+    }
+
+    private ImmutableSet<String> indexes(String table) {
+        try (DSLContext context = persistence.context()) {
+            return context.connectionResult(connection -> {
+                ImmutableSet.Builder<String> indexes = ImmutableSet.builder();
+                try (ResultSet resultSet = connection.getMetaData().getIndexInfo(null, null, table, false, false)) {
+                    while (resultSet.next()) {
+                        indexes.add(resultSet.getString("INDEX_NAME"));
+                    }
+                }
+                return indexes.build();
+            });
+        }
+    }
+
+    /**
+     * H2 marks full scan as tableScan, PostgreSQL as Seq Scan
+     */
+    private static void assertIndexLookup(String plan) {
+        assertThat(plan, not(containsString("tableScan")));
+        assertThat(plan, not(containsString("Seq Scan")));
+    }
+}
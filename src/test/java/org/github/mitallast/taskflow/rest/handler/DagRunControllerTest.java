@@ -0,0 +1,99 @@
+package org.github.mitallast.taskflow.rest.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.executor.DagRunExecutor;
+import org.github.mitallast.taskflow.rest.netty.HttpTestServer;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DagRunControllerTest extends BaseTest {
+
+    private HttpTestServer server;
+    private DagRunPersistenceService persistenceService;
+    // threads of dag run pages load
+    private List<String> threads;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new HttpTestServer();
+        persistenceService = mock(DagRunPersistenceService.class);
+        threads = new CopyOnWriteArrayList<>();
+        new DagRunController(server.controller(), persistenceService, mock(DagRunExecutor.class));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    private static ImmutableList<DagRun> page(DagRunQuery query) {
+        long before = query.before() == null ? 1000 : query.before();
+        ImmutableList.Builder<DagRun> dagRuns = ImmutableList.builder();
+        for (long id = before - 1; id >= before - query.limit() && id > 0; id--) {
+            dagRuns.add(new DagRun(id, new Dag(1, 1, "dag", ImmutableList.of()), new DateTime(), null, null, DagRunStatus.PENDING, ImmutableList.of()));
+        }
+        return dagRuns.build();
+    }
+
+    @Test
+    public void testStreamPages() throws Exception {
+        when(persistenceService.findDagRuns(any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return page(invocation.getArgument(0));
+        });
+
+        HttpURLConnection connection = server.get("api/dag/run?limit=250");
+        Assert.assertEquals(200, connection.getResponseCode());
+        JsonNode json = new ObjectMapper().readTree(HttpTestServer.read(connection));
+        Assert.assertEquals(250, json.size());
+        Assert.assertEquals(999, json.get(0).get("id").asLong());
+        Assert.assertEquals(750, json.get(249).get("id").asLong());
+
+        Assert.assertEquals(3, threads.size());
+        // all pages, including the first one, are loaded out of event loop
+        for (String thread : threads) {
+            Assert.assertTrue(thread, thread.startsWith("rest-stream-"));
+        }
+    }
+
+    @Test
+    public void testFirstPageError() throws Exception {
+        when(persistenceService.findDagRuns(any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            throw new IllegalStateException("database is down");
+        });
+
+        HttpURLConnection connection = server.get("api/dag/run");
+        Assert.assertEquals(500, connection.getResponseCode());
+        Assert.assertTrue(HttpTestServer.read(connection).contains("database is down"));
+        Assert.assertEquals(1, threads.size());
+        Assert.assertTrue(threads.get(0), threads.get(0).startsWith("rest-stream-"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNextPageError() throws Exception {
+        when(persistenceService.findDagRuns(any()))
+            .thenAnswer(invocation -> page(invocation.getArgument(0)))
+            .thenThrow(new IllegalStateException("database is down"));
+
+        HttpURLConnection connection = server.get("api/dag/run?limit=250");
+        Assert.assertEquals(200, connection.getResponseCode());
+        // connection is closed before the end of chunked body
+        HttpTestServer.read(connection);
+    }
+}
@@ -0,0 +1,137 @@
+package org.github.mitallast.taskflow.rest.handler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.dag.*;
+import org.github.mitallast.taskflow.log.TaskLogService;
+import org.github.mitallast.taskflow.log.TaskLogWriter;
+import org.github.mitallast.taskflow.operation.OperationCommand;
+import org.github.mitallast.taskflow.operation.OperationEnvironment;
+import org.github.mitallast.taskflow.rest.netty.HttpTestServer;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+public class TaskLogControllerTest extends BaseTest {
+
+    private HttpTestServer server;
+    private TaskLogService taskLogService;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new HttpTestServer();
+        taskLogService = new TaskLogService(ConfigFactory.parseString(
+            "log.directory = \"" + testFolder.getRoot().getAbsolutePath() + "\"\n" +
+                "log.chunk_size = 4"
+        ).withFallback(server.config()).resolve());
+
+        DagRunPersistenceService persistenceService = mock(DagRunPersistenceService.class);
+        when(persistenceService.findDagRun(anyLong())).thenReturn(Optional.empty());
+        when(persistenceService.findDagRun(1)).thenReturn(Optional.of(dagRun(
+            taskRun(1, TaskRunStatus.SUCCESS),
+            taskRun(2, TaskRunStatus.RUNNING),
+            taskRun(3, TaskRunStatus.RUNNING)
+        )));
+        new TaskLogController(server.controller(), persistenceService, taskLogService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        taskLogService.close();
+    }
+
+    private static TaskRun taskRun(long id, TaskRunStatus status) {
+        OperationCommand command = new OperationCommand(ConfigFactory.empty(), new OperationEnvironment());
+        Task task = new Task(id, 1, "task" + id, ImmutableSet.of(), 1, "dummy", command);
+        return new TaskRun(id, task, new DateTime(), null, null, status, null);
+    }
+
+    private static DagRun dagRun(TaskRun... taskRuns) {
+        return new DagRun(1, new Dag(1, 1, "dag", ImmutableList.of()), new DateTime(), null, null, DagRunStatus.RUNNING, ImmutableList.copyOf(taskRuns));
+    }
+
+    private void finishedLog() throws Exception {
+        taskLogService.writer(1).append("0123456789");
+        taskLogService.close(1);
+    }
+
+    @Test
+    public void testFinishedLog() throws Exception {
+        finishedLog();
+        HttpURLConnection connection = server.get("api/dag/run/id/1/task/1/log");
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("10", connection.getHeaderField("X-Log-Size"));
+        Assert.assertEquals("true", connection.getHeaderField("X-Log-Complete"));
+        // file region is sent with content length, not chunked
+        Assert.assertEquals(10, connection.getContentLengthLong());
+        Assert.assertEquals("0123456789", HttpTestServer.read(connection));
+    }
+
+    @Test
+    public void testFinishedLogRange() throws Exception {
+        finishedLog();
+        Assert.assertEquals("3456", HttpTestServer.read(server.get("api/dag/run/id/1/task/1/log?offset=3&limit=4")));
+        Assert.assertEquals("789", HttpTestServer.read(server.get("api/dag/run/id/1/task/1/log?offset=7&limit=100")));
+
+        HttpURLConnection connection = server.get("api/dag/run/id/1/task/1/log?offset=100");
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("true", connection.getHeaderField("X-Log-Complete"));
+        Assert.assertEquals("", HttpTestServer.read(connection));
+    }
+
+    @Test
+    public void testRunningLog() throws Exception {
+        taskLogService.writer(2).append("line 1\n");
+        HttpURLConnection connection = server.get("api/dag/run/id/1/task/2/log?offset=2");
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("7", connection.getHeaderField("X-Log-Size"));
+        Assert.assertEquals("false", connection.getHeaderField("X-Log-Complete"));
+        // without follow, stream ends at current end of log
+        Assert.assertEquals("ne 1\n", HttpTestServer.read(connection));
+    }
+
+    @Test
+    public void testFollowEndsOnClose() throws Exception {
+        TaskLogWriter writer = taskLogService.writer(2);
+        writer.append("line 1\n");
+        CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> {
+            try {
+                return HttpTestServer.read(server.get("api/dag/run/id/1/task/2/log?follow=true"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(300);
+        Assert.assertFalse(response.isDone());
+        writer.append("line 2\n");
+        taskLogService.close(2);
+        Assert.assertEquals("line 1\nline 2\n", response.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNotStartedLog() throws Exception {
+        HttpURLConnection connection = server.get("api/dag/run/id/1/task/3/log?follow=true");
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("0", connection.getHeaderField("X-Log-Size"));
+        Assert.assertEquals("false", connection.getHeaderField("X-Log-Complete"));
+        Assert.assertEquals("", HttpTestServer.read(connection));
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        Assert.assertEquals(404, server.get("api/dag/run/id/1/task/4/log").getResponseCode());
+        Assert.assertEquals(404, server.get("api/dag/run/id/2/task/1/log").getResponseCode());
+    }
+}
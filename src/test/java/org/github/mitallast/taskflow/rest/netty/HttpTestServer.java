@@ -0,0 +1,71 @@
+package org.github.mitallast.taskflow.rest.netty;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.github.mitallast.taskflow.common.EventBus;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.rest.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+
+/**
+ * Http server on free local port, handlers are registered in {@link #controller()}.
+ */
+public class HttpTestServer implements Closeable {
+
+    private final Config config;
+    private final RestController controller;
+    private final HttpServer server;
+    private final int port;
+
+    public HttpTestServer() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        config = ConfigFactory.parseString("rest.host = 127.0.0.1\nrest.port = " + port)
+            .withFallback(ConfigFactory.defaultReference())
+            .resolve();
+        JsonService jsonService = new JsonService(config);
+        controller = new RestController(config, jsonService);
+        server = new HttpServer(config, new HttpServerHandler(controller), new WebSocketFrameHandler(config, jsonService, new EventBus<>()));
+        server.start();
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    public RestController controller() {
+        return controller;
+    }
+
+    public HttpURLConnection get(String uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/" + uri).openConnection();
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    public static String read(HttpURLConnection connection) throws IOException {
+        InputStream input = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (InputStream in = input) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
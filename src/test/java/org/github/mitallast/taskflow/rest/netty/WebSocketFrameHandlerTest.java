@@ -0,0 +1,130 @@
+package org.github.mitallast.taskflow.rest.netty;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.github.mitallast.taskflow.common.EventBus;
+import org.github.mitallast.taskflow.common.json.JsonService;
+import org.github.mitallast.taskflow.executor.event.DagRunEvent;
+import org.github.mitallast.taskflow.executor.event.TaskRunNewOutput;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+public class WebSocketFrameHandlerTest extends BaseTest {
+
+    private EventBus<DagRunEvent> eventBus;
+    private JsonService jsonService;
+    private WebSocketFrameHandler handler;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        Config config = ConfigFactory.parseString("rest.websocket.queue_size = 3")
+            .withFallback(ConfigFactory.defaultReference())
+            .resolve();
+        eventBus = new EventBus<>();
+        jsonService = Mockito.spy(new JsonService(config));
+        handler = new WebSocketFrameHandler(config, jsonService, eventBus);
+        channel = channel();
+    }
+
+    private EmbeddedChannel channel() {
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(new TextWebSocketFrame("{\"action\":\"subscribe\",\"channel\":\"dag/run/1\"}"));
+        return channel;
+    }
+
+    private List<String> frames() {
+        return frames(channel);
+    }
+
+    private static List<String> frames(EmbeddedChannel channel) {
+        channel.runPendingTasks();
+        List<String> frames = new ArrayList<>();
+        TextWebSocketFrame frame;
+        while ((frame = channel.readOutbound()) != null) {
+            frames.add(frame.text());
+            frame.release();
+        }
+        return frames;
+    }
+
+    private void writable(boolean writable) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line 1\n", 1));
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line 2\n", 1));
+
+        List<String> frames = frames();
+        Assert.assertEquals(2, frames.size());
+        assertThat(frames.get(0), containsString("line 1"));
+        assertThat(frames.get(1), containsString("line 2"));
+    }
+
+    @Test
+    public void testDropLinesOfSlowClient() throws Exception {
+        writable(false);
+        for (int i = 0; i < 10; i++) {
+            eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line " + i + "\n", 1));
+        }
+        Assert.assertTrue(frames().isEmpty());
+
+        writable(true);
+        List<String> frames = frames();
+        Assert.assertEquals(4, frames.size());
+        assertThat(frames.get(2), containsString("line 2"));
+        assertThat(frames.get(3), containsString("TaskRunOutputDropped"));
+        assertThat(frames.get(3), containsString("\"lines\":7"));
+
+        // client caught up, lines are sent again
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line 10\n", 1));
+        frames = frames();
+        Assert.assertEquals(1, frames.size());
+        assertThat(frames.get(0), containsString("line 10"));
+    }
+
+    @Test
+    public void testSerializeOnce() throws Exception {
+        EmbeddedChannel other = channel();
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line\n", 1));
+
+        List<String> frames = frames();
+        Assert.assertEquals(1, frames.size());
+        Assert.assertEquals(frames, frames(other));
+        Mockito.verify(jsonService, Mockito.times(1)).serialize(Mockito.any(ByteBuf.class), Mockito.any());
+    }
+
+    @Test
+    public void testUnsubscribeOnClose() throws Exception {
+        channel.close();
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line\n", 1));
+        Assert.assertTrue(frames().isEmpty());
+    }
+
+    @Test
+    public void testRemoveChannel() throws Exception {
+        Assert.assertEquals(1, handler.subscriptions());
+        eventBus.remove("dag/run/1");
+        Assert.assertEquals(0, handler.subscriptions());
+
+        // subscribe again after dag run is finished registers new subscription at event bus
+        channel.writeInbound(new TextWebSocketFrame("{\"action\":\"subscribe\",\"channel\":\"dag/run/1\"}"));
+        Assert.assertEquals(1, handler.subscriptions());
+        eventBus.trigger("dag/run/1", new TaskRunNewOutput(1, "line\n", 1));
+        Assert.assertEquals(1, frames().size());
+    }
+}
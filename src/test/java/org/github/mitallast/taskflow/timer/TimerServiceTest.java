@@ -0,0 +1,88 @@
+package org.github.mitallast.taskflow.timer;
+
+import com.typesafe.config.ConfigFactory;
+import io.netty.util.Timeout;
+import org.github.mitallast.taskflow.common.BaseTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimerServiceTest extends BaseTest {
+
+    private TimerService timer;
+
+    @Before
+    public void setUp() throws Exception {
+        timer = new TimerService(ConfigFactory.defaultReference());
+        timer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timer.close();
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+    }
+
+    @Test
+    public void testScheduleInExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-executor"));
+        try {
+            List<String> threads = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(() -> {
+                threads.add(Thread.currentThread().getName());
+                latch.countDown();
+            }, 10, TimeUnit.MILLISECONDS, executor);
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals("test-executor", threads.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger fired = new AtomicInteger();
+        Timeout timeout = timer.schedule(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+        Thread.sleep(200);
+        Assert.assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testManyPendingTimeouts() throws Exception {
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            timer.schedule(latch::countDown, 100 + i % 100, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskExceptionDoesNotStopTimer() throws Exception {
+        timer.schedule(() -> {
+            throw new IllegalStateException("test");
+        }, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+}